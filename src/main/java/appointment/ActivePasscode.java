@@ -0,0 +1,5 @@
+package appointment;
+
+// Passcode of an appointment that can be checked in today
+public record ActivePasscode(String passcode, int appointmentId) {
+}
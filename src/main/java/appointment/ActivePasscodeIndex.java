@@ -0,0 +1,114 @@
+package appointment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Passcode to appointment id for today's appointments that can still be checked in or out. Front
+ * desk check-ins resolve the passcode here instead of querying by passcode; the index is rebuilt
+ * at midnight and kept current by booking, rescheduling, cancel and checkout. Once it holds
+ * {@code appointment.checkin.index-max-size} entries further passcodes are left to the database.
+ * Passcodes are unique across shards, but the appointment ids they resolve to are only meaningful
+ * on the shard holding the appointment, so each shard has its own map.
+ */
+@Component
+public class ActivePasscodeIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivePasscodeIndex.class);
+
+    static final List<AppointmentStatus> ACTIVE_STATUSES = List.of(
+            AppointmentStatus.BOOKED, AppointmentStatus.RESCHEDULED, AppointmentStatus.CHECKED_IN);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Value("${appointment.checkin.index-max-size:20000}")
+    private int maxSize;
+
+    private volatile LocalDate day = LocalDate.MIN;
+
+    private volatile Map<String, Map<String, Integer>> passcodesByShard = Map.of();
+
+    @PostConstruct
+    public void init() {
+        jobCoordinator.schedule("passcodes.rebuild", JobCoordinator.Mode.EVERY_NODE, JobCoordinator.cron("0 0 0 * * *"), this::rebuild);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDate today = LocalDate.now();
+        Map<String, Map<String, Integer>> rebuilt = new HashMap<>();
+        int indexed = 0;
+        for (String shard : shardMap.allShards()) {
+            Map<String, Integer> passcodes = new ConcurrentHashMap<>();
+            for (ActivePasscode active : ShardContext.call(shard, () -> appointmentRepository.findActivePasscodes(today, ACTIVE_STATUSES))) {
+                if (passcodes.size() >= maxSize) {
+                    logger.warn("Active passcode index of shard {} is full at {} entries; remaining passcodes resolve from the database", shard, maxSize);
+                    break;
+                }
+                passcodes.put(active.passcode(), active.appointmentId());
+            }
+            rebuilt.put(shard, passcodes);
+            indexed += passcodes.size();
+        }
+        passcodesByShard = Map.copyOf(rebuilt);
+        day = today;
+        logger.info("Indexed {} active passcodes for {}", indexed, today);
+    }
+
+    // Appointment id for the passcode, or null when the index does not know it (yet)
+    public Integer find(String passcode) {
+        Map<String, Integer> passcodes = currentShard();
+        return passcodes == null ? null : passcodes.get(passcode);
+    }
+
+    public void record(Appointment appointment) {
+        Map<String, Integer> passcodes = currentShard();
+        if (appointment.getPasscode() == null || passcodes == null) {
+            return;
+        }
+        if (LocalDate.now().equals(appointment.getDate()) && ACTIVE_STATUSES.contains(appointment.getAppointmentstatus())) {
+            if (passcodes.size() < maxSize) {
+                passcodes.put(appointment.getPasscode(), appointment.getAppointmentid());
+            }
+        } else {
+            passcodes.remove(appointment.getPasscode(), appointment.getAppointmentid());
+        }
+    }
+
+    public void remove(String passcode) {
+        Map<String, Integer> passcodes = currentShard();
+        if (passcode != null && passcodes != null) {
+            passcodes.remove(passcode);
+        }
+    }
+
+    // Map of the shard this thread works on, or null when the index is not current
+    private Map<String, Integer> currentShard() {
+        return isCurrent() ? passcodesByShard.get(ShardContext.currentOrDefault()) : null;
+    }
+
+    // An index built for another day (e.g. before the midnight rebuild ran) is not trusted
+    private boolean isCurrent() {
+        return LocalDate.now().equals(day);
+    }
+}
@@ -8,37 +8,62 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "appointment")
+@NamedEntityGraph(name = Appointment.WITH_REFERENCES, attributeNodes = {
+        @NamedAttributeNode("visitor"),
+        @NamedAttributeNode("institution"),
+        @NamedAttributeNode("user")
+})
+@Table(name = "appointment", indexes = {
+        @Index(name = "idx_appointment_visitor_status", columnList = "visitorid, appointmentstatus, department"),
+        @Index(name = "idx_appointment_visitor_slot", columnList = "visitorid, date, time"),
+        @Index(name = "idx_appointment_institution_day", columnList = "institutionid, date, department, appointmentstatus, time"),
+        @Index(name = "idx_appointment_user_date", columnList = "userid, date, time"),
+        @Index(name = "idx_appointment_date_time", columnList = "date, time"),
+        @Index(name = "idx_appointment_department_date", columnList = "department, date, time"),
+        @Index(name = "idx_appointment_pending_reminders", columnList = "meeting_type, reminder_sent_at, date")
+})
 public class Appointment {
 
+    // Fetch plan for finders whose results are used beyond their ids: loads the three references in the same select
+    public static final String WITH_REFERENCES = "Appointment.withReferences";
+
+    // Ids come in blocks from the id_generator table, so inserts can be batched (IDENTITY forces one round trip per row)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "appointment_ids")
+    @TableGenerator(name = "appointment_ids", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "appointment", allocationSize = 50)
     private int appointmentid;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "visitorid")
     private Visitor visitor;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "institutionid")
     private Institution institution;
 
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "userid", nullable = false) // Stores the general user (admin, super admin, etc.)
     private Users user;
 
     private LocalDate date;
     private Time time;
-    private String appointmentstatus;
+    private AppointmentStatus appointmentstatus;
     private String department;
 
     @Column(name = "passcode", unique = true)
@@ -54,6 +79,15 @@ public class Appointment {
     @Column(name = "check_out_time")
     private LocalDateTime checkOutTime;
 
+    // Bumped by every write; status transitions compare it before updating
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
+    // Set once the reminder email has been claimed for sending, so it goes out only once
+    @Column(name = "reminder_sent_at")
+    private LocalDateTime reminderSentAt;
+
     // New field to specify meeting type (VIRTUAL or PHYSICAL)
     @Enumerated(EnumType.STRING)
     @Column(name = "meeting_type", nullable = false)
@@ -129,11 +163,11 @@ public class Appointment {
         this.time = time;
     }
 
-    public String getAppointmentstatus() {
+    public AppointmentStatus getAppointmentstatus() {
         return appointmentstatus;
     }
 
-    public void setAppointmentstatus(String appointmentstatus) {
+    public void setAppointmentstatus(AppointmentStatus appointmentstatus) {
         this.appointmentstatus = appointmentstatus;
     }
 
@@ -176,4 +210,20 @@ public class Appointment {
     public void setCheckOutTime(LocalDateTime checkOutTime) {
         this.checkOutTime = checkOutTime;
     }
+
+    public LocalDateTime getReminderSentAt() {
+        return reminderSentAt;
+    }
+
+    public void setReminderSentAt(LocalDateTime reminderSentAt) {
+        this.reminderSentAt = reminderSentAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -5,6 +5,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import jakarta.annotation.PostConstruct;  // Changed from javax to jakarta
@@ -12,6 +13,7 @@ import java.io.File;
 
 @SpringBootApplication
 @EnableJpaRepositories("appointment")
+@EnableScheduling
 public class AppointmentBookingApplication {
 
     @Value("${spring.web.resources.static-locations}")
@@ -0,0 +1,12 @@
+package appointment;
+
+import java.io.Serializable;
+
+public class AppointmentConflictException extends RuntimeException implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public AppointmentConflictException(String message) {
+        super(message);
+    }
+}
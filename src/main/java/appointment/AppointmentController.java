@@ -8,10 +8,12 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -27,22 +29,44 @@ public class AppointmentController {
     private AppointmentService appointmentService;
     
     @Autowired
-    private InstitutionService institutionService;
+    private TenantDirectory tenantDirectory;
+
+    @Autowired
+    private NdjsonStreamer ndjsonStreamer;
+
+    @Autowired
+    private BulkBookingService bulkBookingService;
 
     @Operation(summary = "Get all appointments", description = "Retrieve a list of all appointments")
     @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
     @GetMapping
-    public List<Appointment> getAllAppointments() {
+    public List<AppointmentView> getAllAppointments() {
         return appointmentService.getAllAppointments();
     }
 
+    @Operation(summary = "Get a page of appointments", description = "Keyset-paginated list of appointments; pass the returned cursor as 'after' for the next page")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
+    @GetMapping("/page")
+    public KeysetPage<AppointmentView> getAppointmentsPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size) {
+        return appointmentService.getAppointmentsPage(after, size);
+    }
+
+    @Operation(summary = "Stream all appointments", description = "Streams every appointment as newline-delimited JSON")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAppointments() {
+        return ndjsonStreamer.stream(appointmentService::streamAppointments);
+    }
+
     @Operation(summary = "Get appointment by ID", description = "Retrieve a single appointment by its ID")
     @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
     @GetMapping("/{id}")
-    public ResponseEntity<Appointment> getAppointmentById(
+    public ResponseEntity<AppointmentView> getAppointmentById(
             @Parameter(description = "ID of the appointment to be retrieved", required = true)
             @PathVariable int id) {
-        Appointment appointment = appointmentService.getAppointmentById(id);
+        AppointmentView appointment = appointmentService.getAppointmentViewById(id);
         if (appointment != null) {
             return ResponseEntity.ok(appointment);
         }
@@ -53,7 +77,7 @@ public class AppointmentController {
     @PostMapping
     public ResponseEntity<Appointment> createAppointment(@RequestBody Appointment appointment) {
         try {
-            Institution institution = institutionService.getInstitutionById(appointment.getInstitution().getId()).orElse(null);
+            Institution institution = tenantDirectory.institution(appointment.getInstitution().getId()).orElse(null);
             if (institution == null) {
                 logger.error("Invalid institution ID provided: {}", appointment.getInstitution().getId());
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
@@ -79,9 +103,20 @@ public class AppointmentController {
     }
 
 
+    @Operation(summary = "Book appointments in bulk", description = "Books a batch of appointments in one transaction and returns one result per item")
+    @PostMapping("/bulk")
+    public ResponseEntity<?> createAppointments(@RequestBody List<Appointment> appointments) {
+        try {
+            List<BulkBookingResult> results = bulkBookingService.bookAll(appointments);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/visitor/{visitorId}")
-    public ResponseEntity<List<Appointment>> getAppointmentsByVisitorId(@PathVariable int visitorId) {
-        List<Appointment> appointments = appointmentService.getAppointmentsByVisitorId(visitorId);
+    public ResponseEntity<List<AppointmentView>> getAppointmentsByVisitorId(@PathVariable int visitorId) {
+        List<AppointmentView> appointments = appointmentService.getAppointmentsByVisitorId(visitorId);
         if (appointments.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -89,7 +124,7 @@ public class AppointmentController {
     }
     
 
-    @Operation(summary = "Update an existing appointment", description = "Update an existing appointment by its ID")
+    @Operation(summary = "Update an existing appointment", description = "Update an existing appointment by its ID; date, time, department and institution are changed through the reschedule endpoint")
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping("/{id}")
     public ResponseEntity<Appointment> updateAppointment(
@@ -99,7 +134,7 @@ public class AppointmentController {
             @RequestBody Appointment newAppointment) {
         try {
             // Validate institution
-            Institution institution = institutionService.getInstitutionById(newAppointment.getInstitution().getId()).orElse(null);
+            Institution institution = tenantDirectory.institution(newAppointment.getInstitution().getId()).orElse(null);
             if (institution == null) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
             }
@@ -110,6 +145,8 @@ public class AppointmentController {
                 return ResponseEntity.ok(updatedAppointment);
             }
             return ResponseEntity.notFound().build();
+        } catch (OptimisticLockingFailureException | AppointmentConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -166,6 +203,29 @@ public class AppointmentController {
         }
     }
 
+    @Operation(summary = "Get availability for a date range",
+            description = "Returns, per department and day, a bitmask over the listed slots where a set bit means the slot still has seats")
+    @GetMapping("/availability")
+    public ResponseEntity<AvailabilityCalendar> getAvailabilityCalendar(
+            @RequestParam("institutionId") Long institutionId,
+            @RequestParam("departments") List<String> departments,
+            @RequestParam("from") String fromString,
+            @RequestParam("to") String toString) {
+        try {
+            LocalDate from = LocalDate.parse(fromString);
+            LocalDate to = LocalDate.parse(toString);
+            return ResponseEntity.ok(appointmentService.getAvailabilityCalendar(institutionId, departments, from, to));
+        } catch (DateTimeParseException e) {
+            logger.error("Invalid date range provided: {} to {}", fromString, toString);
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid availability request for institution {}: {}", institutionId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("An error occurred while retrieving the availability calendar.", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 
     @Operation(summary = "Check-in for an appointment", description = "Mark a visitor as checked-in for their appointment")
     @PreAuthorize("hasRole('RECEPTIONIST')")
@@ -187,13 +247,39 @@ public class AppointmentController {
         }
 
         // Passcode is correct, proceed with check-in
-        Appointment checkedInAppointment = appointmentService.checkInAppointment(id);
+        Appointment checkedInAppointment = appointmentService.checkInAppointment(appointment);
         if (checkedInAppointment != null) {
             return ResponseEntity.ok(checkedInAppointment);
         }
         return ResponseEntity.badRequest().body(null); // or appropriate response if check-in is not allowed
     }
 
+    @Operation(summary = "Check-in by passcode", description = "Check in today's appointment that owns the passcode")
+    @PreAuthorize("hasRole('RECEPTIONIST')")
+    @PutMapping("/checkin")
+    public ResponseEntity<Appointment> checkInByPasscode(
+            @Parameter(description = "Passcode of the appointment", required = true)
+            @RequestHeader("Passcode") String passcode) {
+        Appointment checkedInAppointment = appointmentService.checkInByPasscode(passcode);
+        if (checkedInAppointment != null) {
+            return ResponseEntity.ok(checkedInAppointment);
+        }
+        return ResponseEntity.badRequest().body(null);
+    }
+
+    @Operation(summary = "Check-out by passcode", description = "Check out the checked-in appointment that owns the passcode")
+    @PreAuthorize("hasRole('RECEPTIONIST')")
+    @PutMapping("/checkout")
+    public ResponseEntity<Appointment> checkOutByPasscode(
+            @Parameter(description = "Passcode of the appointment", required = true)
+            @RequestHeader("Passcode") String passcode) {
+        Appointment checkedOutAppointment = appointmentService.checkOutByPasscode(passcode);
+        if (checkedOutAppointment != null) {
+            return ResponseEntity.ok(checkedOutAppointment);
+        }
+        return ResponseEntity.badRequest().body(null);
+    }
+
     @Operation(summary = "Check-out for an appointment", description = "Mark a visitor as checked-out after their appointment")
     @PreAuthorize("hasRole('RECEPTIONIST')")
     @PutMapping("/{id}/checkout")
@@ -214,7 +300,7 @@ public class AppointmentController {
         }
 
         // Passcode is correct, proceed with check-out
-        Appointment checkedOutAppointment = appointmentService.checkOutAppointment(id);
+        Appointment checkedOutAppointment = appointmentService.checkOutAppointment(appointment);
         if (checkedOutAppointment != null) {
             return ResponseEntity.ok(checkedOutAppointment);
         }
@@ -224,21 +310,44 @@ public class AppointmentController {
     @Operation(summary = "Get appointments by institution ID", description = "Retrieve appointments for a specific institution")
     @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
     @GetMapping("/institution/{institutionId}")
-    public ResponseEntity<List<Appointment>> getAppointmentsByInstitutionId(
+    public ResponseEntity<List<AppointmentView>> getAppointmentsByInstitutionId(
             @Parameter(description = "ID of the institution for which appointments are to be retrieved", required = true)
             @PathVariable Long institutionId) {
-        List<Appointment> appointments = appointmentService.getAppointmentsByInstitutionId(institutionId);
+        List<AppointmentView> appointments = appointmentService.getAppointmentsByInstitutionId(institutionId);
         if (!appointments.isEmpty()) {
             return new ResponseEntity<>(appointments, HttpStatus.OK);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
+
+    @Operation(summary = "Get a page of appointments by institution ID", description = "Keyset-paginated appointments of an institution, ordered by date")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
+    @GetMapping("/institution/{institutionId}/page")
+    public KeysetPage<AppointmentView> getAppointmentsByInstitutionIdPage(
+            @PathVariable Long institutionId,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size) {
+        return appointmentService.getAppointmentsByInstitutionIdPage(institutionId, after, size);
+    }
+
+    @Operation(summary = "Stream appointments by institution ID", description = "Streams an institution's appointments as newline-delimited JSON")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
+    @GetMapping(value = "/institution/{institutionId}/stream", produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAppointmentsByInstitutionId(@PathVariable Long institutionId) {
+        return ndjsonStreamer.stream(() -> appointmentService.streamAppointmentsByInstitutionId(institutionId));
+    }
+
     @GetMapping("/institution/{institutionId}/date/{date}/status/{status}")
-    public ResponseEntity<List<Appointment>> getAppointmentsByInstitutionIdAndDateAndStatus(
+    public ResponseEntity<List<AppointmentView>> getAppointmentsByInstitutionIdAndDateAndStatus(
             @PathVariable Long institutionId, @PathVariable LocalDate date, @PathVariable String status) {
         logger.info("Received request to fetch appointments for institution ID: {}, date: {}, status: {}", institutionId, date, status);
-        List<Appointment> appointments = appointmentService.getAppointmentsByInstitutionIdAndDateAndStatus(institutionId, date, status);
+        List<AppointmentView> appointments;
+        try {
+            appointments = appointmentService.getAppointmentsByInstitutionIdAndDateAndStatus(institutionId, date, status);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
         if (!appointments.isEmpty()) {
             return new ResponseEntity<>(appointments, HttpStatus.OK);
         }
@@ -249,10 +358,10 @@ public class AppointmentController {
     @Operation(summary = "Get appointments by physiotherapist ID", description = "Retrieve appointments for a specific physiotherapist")
     @PreAuthorize("hasRole('PHYSIOTHERAPIST')")
     @GetMapping("/physio/{physioId}")
-    public ResponseEntity<List<Appointment>> getAppointmentsByPhysioId(
+    public ResponseEntity<List<AppointmentView>> getAppointmentsByPhysioId(
             @Parameter(description = "ID of the physiotherapist", required = true)
             @PathVariable int physioId) {
-        List<Appointment> appointments = appointmentService.getAppointmentsByPhysioId(physioId);
+        List<AppointmentView> appointments = appointmentService.getAppointmentsByPhysioId(physioId);
         if (!appointments.isEmpty()) {
             return ResponseEntity.ok(appointments);
         }
@@ -277,6 +386,8 @@ public class AppointmentController {
             }
 
             return ResponseEntity.ok(updatedAppointment);
+        } catch (AppointmentConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error rescheduling appointment: " + e.getMessage());
         }
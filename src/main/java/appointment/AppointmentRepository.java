@@ -1,33 +1,242 @@
 package appointment;
 
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Time;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Integer> {
+    // Every finder returning entities loads visitor, institution and user with the row; the references are lazy otherwise
+    @Override
+    @EntityGraph(Appointment.WITH_REFERENCES)
+    Optional<Appointment> findById(Integer id);
+
+    @Override
+    @EntityGraph(Appointment.WITH_REFERENCES)
+    List<Appointment> findAll();
+
+    @EntityGraph(Appointment.WITH_REFERENCES)
     List<Appointment> findByDepartmentAndDate(String department, LocalDate date);
     long countByDepartmentAndDateAndTime(String department, LocalDate date, Time time);
+    long countByInstitutionIdAndDepartmentAndDateAndTimeAndAppointmentstatusIn(Long institutionId, String department,
+                                                                               LocalDate date, Time time, Collection<AppointmentStatus> statuses);
     List<Time> findAppointmentTimesByDateAndDepartment(LocalDate date, String department);
+
+    @EntityGraph(Appointment.WITH_REFERENCES)
     List<Appointment> findByVisitorVisitorid(int visitorid);
+
+    // Eligibility checks: both only look at the visitor's unresolved appointments
+    boolean existsByVisitorVisitoridAndDepartmentAndAppointmentstatusNotIn(int visitorid, String department,
+                                                                          Collection<AppointmentStatus> resolvedStatuses);
+
+    @Query("SELECT COUNT(a) > 0 FROM Appointment a WHERE a.visitor.visitorid = :visitorId " +
+            "AND a.date = :date AND a.time = :time AND a.institution.id <> :institutionId " +
+            "AND a.appointmentstatus NOT IN :resolvedStatuses")
+    boolean existsConcurrentAppointment(@Param("visitorId") int visitorId,
+                                        @Param("date") LocalDate date,
+                                        @Param("time") Time time,
+                                        @Param("institutionId") Long institutionId,
+                                        @Param("resolvedStatuses") Collection<AppointmentStatus> resolvedStatuses);
     
     boolean existsByPasscode(String passcode);
+
+    @EntityGraph(Appointment.WITH_REFERENCES)
     Appointment findByPasscode(String passcode);
+
+    // Bulk booking: one round trip each for passcode collisions and open appointments
+    @Query("SELECT a.passcode FROM Appointment a WHERE a.passcode IN :passcodes")
+    List<String> findExistingPasscodes(@Param("passcodes") Collection<String> passcodes);
+
+    @Query("SELECT new appointment.OpenAppointment(a.visitor.visitorid, a.institution.id, a.department, a.date, a.time) " +
+            "FROM Appointment a " +
+            "WHERE a.visitor.visitorid IN :visitorIds AND a.appointmentstatus NOT IN :resolvedStatuses")
+    List<OpenAppointment> findOpenAppointments(@Param("visitorIds") Collection<Integer> visitorIds,
+                                               @Param("resolvedStatuses") Collection<AppointmentStatus> resolvedStatuses);
+
+    // Passcode check-in: today's active passcodes, and status transitions guarded by id, passcode, day and status
+    @Query("SELECT new appointment.ActivePasscode(a.passcode, a.appointmentid) FROM Appointment a " +
+            "WHERE a.date = :date AND a.passcode IS NOT NULL AND a.appointmentstatus IN :statuses")
+    List<ActivePasscode> findActivePasscodes(@Param("date") LocalDate date,
+                                             @Param("statuses") Collection<AppointmentStatus> statuses);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.appointmentstatus = :newStatus, a.version = a.version + 1, a.checkInTime = :now " +
+            "WHERE a.appointmentid = :id AND a.passcode = :passcode AND a.date = :date AND a.appointmentstatus IN :fromStatuses")
+    int checkInByPasscode(@Param("id") int id,
+                          @Param("passcode") String passcode,
+                          @Param("date") LocalDate date,
+                          @Param("fromStatuses") Collection<AppointmentStatus> fromStatuses,
+                          @Param("newStatus") AppointmentStatus newStatus,
+                          @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.appointmentstatus = :newStatus, a.version = a.version + 1, a.checkOutTime = :now " +
+            "WHERE a.appointmentid = :id AND a.passcode = :passcode AND a.appointmentstatus IN :fromStatuses")
+    int checkOutByPasscode(@Param("id") int id,
+                           @Param("passcode") String passcode,
+                           @Param("fromStatuses") Collection<AppointmentStatus> fromStatuses,
+                           @Param("newStatus") AppointmentStatus newStatus,
+                           @Param("now") LocalDateTime now);
+
+    // Status state machine: compare-and-set on status and version, and a current read for retries
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Transactional
+    @Query("UPDATE Appointment a SET a.appointmentstatus = :target, a.version = a.version + 1, " +
+            "a.checkInTime = COALESCE(:checkInTime, a.checkInTime), " +
+            "a.checkOutTime = COALESCE(:checkOutTime, a.checkOutTime), " +
+            "a.cancellationDate = COALESCE(:cancellationDate, a.cancellationDate) " +
+            "WHERE a.appointmentid = :id AND a.version = :version AND a.appointmentstatus IN :sources")
+    int transition(@Param("id") int id,
+                   @Param("sources") Collection<AppointmentStatus> sources,
+                   @Param("target") AppointmentStatus target,
+                   @Param("version") long version,
+                   @Param("checkInTime") LocalDateTime checkInTime,
+                   @Param("checkOutTime") LocalDateTime checkOutTime,
+                   @Param("cancellationDate") LocalDateTime cancellationDate);
+
+    // Locking read so a retry inside a longer transaction sees the latest committed row, not its snapshot
+    @Query(value = "SELECT appointmentstatus AS status, version FROM appointment WHERE appointmentid = :id FOR UPDATE",
+            nativeQuery = true)
+    AppointmentState findCurrentState(@Param("id") int id);
+
+    @Query("SELECT a.appointmentid FROM Appointment a WHERE a.passcode = :passcode")
+    Integer findIdByPasscode(@Param("passcode") String passcode);
     
    // List<Appointment> findByDepartmentAndDateAndInstitution(String department, LocalDate date, Institution institution);
+    @EntityGraph(Appointment.WITH_REFERENCES)
     List<Appointment> findByDepartmentAndDateAndInstitution(String department, LocalDate date, Institution institution);
+
+    @EntityGraph(Appointment.WITH_REFERENCES)
     List<Appointment> findByInstitutionId(Long institutionId);
-    List<Appointment> findByInstitutionIdAndDateAndAppointmentstatus(Long institutionId, LocalDate date, String status);
 
-        @Query("SELECT a FROM Appointment a WHERE a.date = :date AND a.time BETWEEN :startTime AND :endTime")
-        List<Appointment> findAppointmentsBetween(@Param("date") LocalDate date,
-                                                  @Param("startTime") Time startTime,
-                                                  @Param("endTime") Time endTime);
+    @EntityGraph(Appointment.WITH_REFERENCES)
+    List<Appointment> findByInstitutionIdAndDateAndAppointmentstatus(Long institutionId, LocalDate date, AppointmentStatus status);
+
+    @Query("SELECT a.time AS time, COUNT(a) AS booked FROM Appointment a " +
+            "WHERE a.institution.id = :institutionId AND a.department = :department AND a.date = :date " +
+            "AND a.appointmentstatus IN :statuses GROUP BY a.time")
+    List<SlotCount> countBookedSlots(@Param("institutionId") Long institutionId,
+                                     @Param("department") String department,
+                                     @Param("date") LocalDate date,
+                                     @Param("statuses") Collection<AppointmentStatus> statuses);
+
+    @Query("SELECT a.department AS department, a.date AS date, a.time AS time, COUNT(a) AS booked FROM Appointment a " +
+            "WHERE a.institution.id = :institutionId AND a.department IN :departments " +
+            "AND a.date BETWEEN :fromDate AND :toDate AND a.appointmentstatus IN :statuses " +
+            "GROUP BY a.department, a.date, a.time")
+    List<DailySlotCount> countBookedSlotsBetween(@Param("institutionId") Long institutionId,
+                                                 @Param("departments") Collection<String> departments,
+                                                 @Param("fromDate") LocalDate fromDate,
+                                                 @Param("toDate") LocalDate toDate,
+                                                 @Param("statuses") Collection<AppointmentStatus> statuses);
 
+    @EntityGraph(Appointment.WITH_REFERENCES)
+    @Query("SELECT a FROM Appointment a WHERE a.date = :date AND a.time BETWEEN :startTime AND :endTime")
+    List<Appointment> findAppointmentsBetween(@Param("date") LocalDate date,
+                                              @Param("startTime") Time startTime,
+                                              @Param("endTime") Time endTime);
+
+    // Reminders: candidates for the scheduler's horizon, and an atomic "sent" claim. Only the
+    // schedule columns are read here, so the lazy references stay unloaded
+    @Query("SELECT a FROM Appointment a WHERE a.reminderSentAt IS NULL AND a.meetingType = :meetingType " +
+            "AND a.appointmentstatus IN :statuses AND a.date BETWEEN :fromDate AND :toDate")
+    List<Appointment> findPendingReminders(@Param("meetingType") MeetingType meetingType,
+                                           @Param("statuses") Collection<AppointmentStatus> statuses,
+                                           @Param("fromDate") LocalDate fromDate,
+                                           @Param("toDate") LocalDate toDate);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.reminderSentAt = :sentAt WHERE a.appointmentid = :id " +
+            "AND a.reminderSentAt IS NULL AND a.appointmentstatus IN :statuses AND a.date = :date AND a.time = :time")
+    int markReminderSent(@Param("id") int id,
+                         @Param("sentAt") LocalDateTime sentAt,
+                         @Param("statuses") Collection<AppointmentStatus> statuses,
+                         @Param("date") LocalDate date,
+                         @Param("time") Time time);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.reminderSentAt = NULL WHERE a.appointmentid = :id")
+    int clearReminderSent(@Param("id") int id);
+
+    @EntityGraph(Appointment.WITH_REFERENCES)
     List<Appointment> findByUserUserid(int physioId);
+
+    // Open appointments a physiotherapist's digest lists as the agenda until the next digest
+    @EntityGraph(Appointment.WITH_REFERENCES)
+    @Query("SELECT a FROM Appointment a WHERE a.user.userid = :physioId AND a.meetingType = :meetingType " +
+            "AND a.appointmentstatus IN :statuses AND a.date BETWEEN :fromDate AND :toDate ORDER BY a.date, a.time")
+    List<Appointment> findPhysiotherapistAgenda(@Param("physioId") int physioId,
+                                                @Param("meetingType") MeetingType meetingType,
+                                                @Param("statuses") Collection<AppointmentStatus> statuses,
+                                                @Param("fromDate") LocalDate fromDate,
+                                                @Param("toDate") LocalDate toDate);
+
+    // Read models for the GET endpoints: one flat select with the references joined, no entities loaded
+    String VIEW_SELECT = "SELECT new appointment.AppointmentView(a.appointmentid, a.date, a.time, a.appointmentstatus, " +
+            "a.department, a.passcode, a.meetingType, a.videoMeetingLink, a.checkInTime, a.checkOutTime, a.cancellationDate, " +
+            "v.visitorid, v.visitorname, v.email, i.id, i.name, u.userid, u.username, u.email) " +
+            "FROM Appointment a LEFT JOIN a.visitor v LEFT JOIN a.institution i LEFT JOIN a.user u ";
+
+    @Query(VIEW_SELECT + "ORDER BY a.appointmentid")
+    List<AppointmentView> findAllViews();
+
+    @Query(VIEW_SELECT + "WHERE a.appointmentid = :id")
+    Optional<AppointmentView> findViewById(@Param("id") int id);
+
+    @Query(VIEW_SELECT + "WHERE v.visitorid = :visitorId ORDER BY a.date, a.time")
+    List<AppointmentView> findViewsByVisitorId(@Param("visitorId") int visitorId);
+
+    @Query(VIEW_SELECT + "WHERE u.userid = :physioId ORDER BY a.date, a.time")
+    List<AppointmentView> findViewsByPhysioId(@Param("physioId") int physioId);
+
+    @Query(VIEW_SELECT + "WHERE i.id = :institutionId ORDER BY a.date, a.appointmentid")
+    List<AppointmentView> findViewsByInstitutionId(@Param("institutionId") Long institutionId);
+
+    @Query(VIEW_SELECT + "WHERE i.id = :institutionId AND a.date = :date AND a.appointmentstatus = :status ORDER BY a.time")
+    List<AppointmentView> findViewsByInstitutionIdAndDateAndStatus(@Param("institutionId") Long institutionId,
+                                                                  @Param("date") LocalDate date,
+                                                                  @Param("status") AppointmentStatus status);
+
+    // Keyset pagination and streaming for the list endpoints
+    @Query(VIEW_SELECT + "WHERE a.appointmentid > :afterId ORDER BY a.appointmentid")
+    List<AppointmentView> findViewsAfter(@Param("afterId") int afterId, Pageable pageable);
+
+    @Query(VIEW_SELECT + "WHERE i.id = :institutionId ORDER BY a.date, a.appointmentid")
+    List<AppointmentView> findViewsByInstitutionId(@Param("institutionId") Long institutionId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingHints.FETCH_SIZE))
+    @Query(VIEW_SELECT + "ORDER BY a.appointmentid")
+    Stream<AppointmentView> streamAllViews();
+
+    @Query(VIEW_SELECT + "WHERE i.id = :institutionId " +
+            "AND (a.date > :afterDate OR (a.date = :afterDate AND a.appointmentid > :afterId)) " +
+            "ORDER BY a.date, a.appointmentid")
+    List<AppointmentView> findViewsByInstitutionIdAfter(@Param("institutionId") Long institutionId,
+                                                        @Param("afterDate") LocalDate afterDate,
+                                                        @Param("afterId") int afterId,
+                                                        Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingHints.FETCH_SIZE))
+    @Query(VIEW_SELECT + "WHERE i.id = :institutionId ORDER BY a.date, a.appointmentid")
+    Stream<AppointmentView> streamViewsByInstitutionId(@Param("institutionId") Long institutionId);
 }
@@ -3,9 +3,15 @@ package appointment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 
 import java.sql.Time;
@@ -14,8 +20,9 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 @Service
@@ -29,25 +36,93 @@ public class AppointmentService {
     @Autowired
     private VisitorRepository visitorRepository;
     @Autowired
-    private UsersRepository usersRepository;
-    @Autowired
-    private InstitutionRepository institutionRepository;
+    private TenantDirectory tenantDirectory;
 
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private PhysioDigestService physioDigestService;
+
     @Autowired
     private PasscodeGenerator passcodeGenerator;
 
-    public List<Appointment> getAllAppointments() {
-        return appointmentRepository.findAll();
+    @Autowired
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    @Autowired
+    private SlotInventoryService slotInventoryService;
+
+    @Autowired
+    private SlotScheduleRegistry slotScheduleRegistry;
+
+    @Autowired
+    private KeysetPagination keysetPagination;
+
+    @Autowired
+    private ReminderScheduler reminderScheduler;
+
+    @Autowired
+    private ActivePasscodeIndex activePasscodeIndex;
+
+    @Autowired
+    private AppointmentTransitions appointmentTransitions;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private ShardedQueries shardedQueries;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Value("${appointment.transitions.max-attempts:3}")
+    private int maxTransitionAttempts;
+
+    private TransactionTemplate transactionTemplate;
+
+    private static final int MAX_CALENDAR_DAYS = 62;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    static final List<AppointmentStatus> RESOLVED_STATUSES = List.of(AppointmentStatus.ATTENDED, AppointmentStatus.CANCELED);
+
+    @ReadOnlyTransactional
+    public List<AppointmentView> getAllAppointments() {
+        return shardedQueries.gather(appointmentRepository::findAllViews);
+    }
+
+    @ReadOnlyTransactional
+    public KeysetPage<AppointmentView> getAppointmentsPage(String after, Integer size) {
+        int pageSize = keysetPagination.pageSize(size);
+        List<AppointmentView> rows = appointmentRepository.findViewsAfter((int) KeysetPagination.decodeId(after), keysetPagination.probe(pageSize));
+        return keysetPagination.page(rows, pageSize, row -> KeysetPagination.encode(row.appointmentid()));
+    }
+
+    // Must be consumed inside a transaction; see NdjsonStreamer
+    public Stream<AppointmentView> streamAppointments() {
+        return appointmentRepository.streamAllViews();
+    }
+
+    @ReadOnlyTransactional
+    public AppointmentView getAppointmentViewById(int id) {
+        return appointmentRepository.findViewById(id).orElse(null);
     }
 
+    @ReadOnlyTransactional
     public Appointment getAppointmentById(int id) {
         Optional<Appointment> optionalAppointment = appointmentRepository.findById(id);
         return optionalAppointment.orElse(null);
     }
 
+    @Transactional
     public Appointment createAppointment(Appointment appointment) throws Exception {
         try {
             // Validate visitor existence
@@ -69,23 +144,25 @@ public class AppointmentService {
                 throw new RuntimeException("Institution details are required.");
             }
 
-            if (appointment.getInstitution() == null || appointment.getInstitution().getId() == null) {
-                throw new RuntimeException("Institution details are required.");
-            }
-            Institution institution = institutionRepository.findById(appointment.getInstitution().getId()).orElse(null);
+            Institution institution = tenantDirectory.institution(appointment.getInstitution().getId()).orElse(null);
             if (institution == null) {
                 throw new RuntimeException("Invalid institution ID: " + appointment.getInstitution().getId());
             }
+            if (shardMap.isEnabled()) {
+                shardMap.requireCurrentShard(institution.getId());
+            }
             appointment.setInstitution(institution);
 
-// ✅ Fetch and validate the user only once
-            Users user = usersRepository.findById(appointment.getUser().getUserid())
-                    .orElseThrow(() -> new RuntimeException("Invalid user ID: " + appointment.getUser().getUserid()));
+            if (!tenantDirectory.offersDepartment(institution.getId(), appointment.getDepartment())) {
+                throw new RuntimeException("Institution " + institution.getId() + " has no department " + appointment.getDepartment());
+            }
 
-// ✅ Ensure the user is a physiotherapist before assigning
-            if (!user.getRoleName().equals("PHYSIOTHERAPIST")) {
-                throw new RuntimeException("User is not a physiotherapist.");
+// ✅ Validate the physiotherapist against the directory's roster
+            if (appointment.getUser() == null) {
+                throw new RuntimeException("Physiotherapist details are required.");
             }
+            Users user = tenantDirectory.physiotherapist(appointment.getUser().getUserid())
+                    .orElseThrow(() -> new RuntimeException("User " + appointment.getUser().getUserid() + " is not a physiotherapist."));
 
             appointment.setUser(user);
 
@@ -101,15 +178,21 @@ public class AppointmentService {
             }
 
             // Check if appointment can be made
-            if (!canMakeAppointment(visitor.getVisitorid(), appointment.getTime(), institution.getId(), appointment.getDepartment())) {
+            if (!canMakeAppointment(visitor.getVisitorid(), date, appointment.getTime(), institution.getId(), appointment.getDepartment())) {
                 logger.warn("Visitor {} cannot make a new appointment due to existing conditions not met.", visitor.getVisitorname());
                 return null;
             }
 
+            // Claim a seat in the slot; rolled back with the booking if anything below fails
+            if (!slotInventoryService.claimSeat(appointment)) {
+                logger.warn("Slot {} on {} in department {} is fully booked.", appointment.getTime(), date, appointment.getDepartment());
+                return null;
+            }
+
             // Generate passcode and set appointment status
             String passcode = passcodeGenerator.generateUniquePasscode();
             appointment.setPasscode(passcode);
-            appointment.setAppointmentstatus("booked");
+            appointment.setAppointmentstatus(AppointmentStatus.BOOKED);
 
             // Check if appointment is virtual and generate a meeting link
             if (appointment.getMeetingType() == MeetingType.VIRTUAL) {
@@ -120,9 +203,16 @@ public class AppointmentService {
 
             // Save appointment
             Appointment savedAppointment = appointmentRepository.save(appointment);
+            afterCommit(() -> {
+                slotOccupancyIndex.recordBooked(savedAppointment);
+                reminderScheduler.schedule(savedAppointment);
+                activePasscodeIndex.record(savedAppointment);
+            });
+            invalidationBus.publish(CacheInvalidation.slot(savedAppointment));
 
             // Send booking confirmation email to visitor
             emailService.sendBookingConfirmationEmail(savedAppointment);
+            physioDigestService.notify(savedAppointment, PhysioDigestEvent.Type.ASSIGNED);
 
             return savedAppointment;
         } catch (Exception e) {
@@ -137,7 +227,7 @@ public class AppointmentService {
     }
 
     // Generate a random meeting link (Jitsi Meet Example)
-    private String generateMeetingLink(Users physiotherapist) {
+    String generateMeetingLink(Users physiotherapist) {
         String uniqueRoom = UUID.randomUUID().toString();
 
         // Add physiotherapist email as a host parameter (if supported by the meeting provider)
@@ -148,7 +238,7 @@ public class AppointmentService {
 
 
 
-    private boolean isDateTimeInFuture(LocalDate date, LocalTime time) {
+    boolean isDateTimeInFuture(LocalDate date, LocalTime time) {
         // Get the current time with the system's default time zone
         ZonedDateTime now = ZonedDateTime.now();
 
@@ -160,15 +250,37 @@ public class AppointmentService {
     }
 
 
-    public List<Appointment> getAppointmentsByInstitutionId(Long institutionId) {
-        List<Appointment> appointments = appointmentRepository.findByInstitutionId(institutionId);
+    @ReadOnlyTransactional
+    public List<AppointmentView> getAppointmentsByInstitutionId(Long institutionId) {
+        List<AppointmentView> appointments = appointmentRepository.findViewsByInstitutionId(institutionId);
         logger.info("Retrieved {} appointments for institution with ID {}", appointments.size(), institutionId);
         return appointments;
     }
 
+    // Ordered by (date, id) so a page boundary inside one day is still exact
+    @ReadOnlyTransactional
+    public KeysetPage<AppointmentView> getAppointmentsByInstitutionIdPage(Long institutionId, String after, Integer size) {
+        int pageSize = keysetPagination.pageSize(size);
+        List<AppointmentView> rows;
+        if (after == null || after.isBlank()) {
+            rows = appointmentRepository.findViewsByInstitutionId(institutionId, keysetPagination.probe(pageSize));
+        } else {
+            String[] cursor = KeysetPagination.decode(after, 2);
+            LocalDate afterDate = KeysetPagination.decodeDate(cursor[0], after);
+            int afterId = (int) KeysetPagination.decodeLong(cursor[1], after);
+            rows = appointmentRepository.findViewsByInstitutionIdAfter(institutionId, afterDate, afterId, keysetPagination.probe(pageSize));
+        }
+        return keysetPagination.page(rows, pageSize, row -> KeysetPagination.encode(row.date(), row.appointmentid()));
+    }
+
+    public Stream<AppointmentView> streamAppointmentsByInstitutionId(Long institutionId) {
+        return appointmentRepository.streamViewsByInstitutionId(institutionId);
+    }
+
+    // Not read-only: a cold occupancy key is loaded here and must be read on the primary
     public List<Time> getAvailableSlots(LocalDate date, String department, Long institutionId) {
         try {
-            logger.info("Retrieving available slots for date: {}, department: {}, institutionId: {}", date, department, institutionId);
+            logger.debug("Retrieving available slots for date: {}, department: {}, institutionId: {}", date, department, institutionId);
 
 
             // Check if the date is in the past
@@ -177,35 +289,17 @@ public class AppointmentService {
                 return new ArrayList<>(); // Return an empty list as no slots are available for past dates
             }
 
-            // Fetch institution details
-            Institution institution = institutionRepository.findById(institutionId)
-                    .orElseThrow(() -> new IllegalArgumentException("Invalid institution ID"));
-
-            // Retrieve appointments for the given date, department, and institution
-            List<Appointment> appointments = appointmentRepository.findByDepartmentAndDateAndInstitution(department, date, institution);
-
-            // Define all possible time slots
-            List<Time> allSlots = generateAllTimeSlots();
-
-            // Filter appointments with status 'booked'
-            appointments = appointments.stream()
-                    .filter(appointment -> appointment.getAppointmentstatus().equals("booked"))
-                    .collect(Collectors.toList());
-
-            // Count booked slots for the given department and date
-            Map<Time, Long> bookedSlotsMap = appointments.stream()
-                    .collect(Collectors.groupingBy(Appointment::getTime, Collectors.counting()));
+            // Booked counts per slot come from the occupancy index; only a cold key touches the database
+            Map<LocalTime, AtomicInteger> bookedSlots = slotOccupancyIndex.bookedCounts(institutionId, department, date);
 
-            // Filter available slots based on concurrency limits
-            List<Time> availableSlots = allSlots.stream()
-                    .filter(slot -> {
-                        long bookedCount = bookedSlotsMap.getOrDefault(slot, 0L);
-                        return bookedCount < 5; // Check if booked slots are less than 5
-                    })
-                    .collect(Collectors.toList());
+            // Filter available slots against the department's compiled schedule and capacities
+            SlotSchedule schedule = slotScheduleRegistry.scheduleFor(institutionId, department);
+            long availableSlots = schedule.availableSlots(slot -> {
+                AtomicInteger bookedCount = bookedSlots.get(slot);
+                return bookedCount == null ? 0 : bookedCount.get();
+            });
 
-            logger.info("Available slots retrieved successfully.");
-            return availableSlots;
+            return schedule.times(availableSlots);
         } catch (Exception e) {
             logger.error("An error occurred while retrieving available slots.", e);
             throw e; // Re-throw the exception to be handled by the controller
@@ -213,146 +307,272 @@ public class AppointmentService {
     }
 
 
-    private List<Time> generateAllTimeSlots() {
-        // Define all possible time slots
-        return Stream.of(
-                Time.valueOf("09:00:00"),
-                Time.valueOf("10:00:00"),
-                Time.valueOf("11:00:00"),
-                Time.valueOf("12:00:00"),
-                Time.valueOf("14:00:00"),
-                Time.valueOf("15:00:00"),
-                Time.valueOf("16:00:00")
-        ).collect(Collectors.toList());
-    }
-
-    private boolean canMakeAppointment(int visitorId, Time newAppointmentTime, Long newInstitutionId, String newDepartment) {
-        List<Appointment> appointments = appointmentRepository.findByVisitorVisitorid(visitorId);
+    @ReadOnlyTransactional
+    public AvailabilityCalendar getAvailabilityCalendar(Long institutionId, List<String> departments, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The end date must not be before the start date");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_CALENDAR_DAYS) {
+            throw new IllegalArgumentException("The date range cannot exceed " + MAX_CALENDAR_DAYS + " days");
+        }
+        if (!tenantDirectory.institutionExists(institutionId)) {
+            throw new IllegalArgumentException("Invalid institution ID");
+        }
 
-        if (appointments.isEmpty()) {
-            return true; // No existing appointments, user can make a new appointment
+        // Index the grouped counts by department, date and slot; no appointment entity is loaded
+        Map<String, Map<LocalDate, Map<LocalTime, Long>>> booked = new HashMap<>();
+        LocalDate today = LocalDate.now();
+        LocalDate firstBookable = from.isBefore(today) ? today : from;
+        if (!firstBookable.isAfter(to)) {
+            for (DailySlotCount count : appointmentRepository.countBookedSlotsBetween(
+                    institutionId, departments, firstBookable, to, SlotOccupancyIndex.OCCUPYING_STATUSES)) {
+                booked.computeIfAbsent(count.getDepartment(), d -> new HashMap<>())
+                        .computeIfAbsent(count.getDate(), d -> new HashMap<>())
+                        .put(count.getTime().toLocalTime(), count.getBooked());
+            }
         }
 
-        for (Appointment appointment : appointments) {
-            if (!isAppointmentResolved(appointment)) {
-                if (appointment.getDepartment().equals(newDepartment)) {
-                    logger.warn("Visitor {} has unresolved appointment in department {}.", visitorId, newDepartment);
-                    return false; // User has an existing unresolved appointment in the same department, cannot make a new appointment
+        Map<String, AvailabilityCalendar.DepartmentAvailability> availability = new LinkedHashMap<>();
+        for (String department : departments) {
+            SlotSchedule schedule = slotScheduleRegistry.scheduleFor(institutionId, department);
+            Map<LocalDate, Map<LocalTime, Long>> bookedByDate = booked.getOrDefault(department, Map.of());
+            Map<LocalDate, Long> days = new LinkedHashMap<>();
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                long mask = 0;
+                if (!date.isBefore(today)) {
+                    Map<LocalTime, Long> bookedBySlot = bookedByDate.getOrDefault(date, Map.of());
+                    mask = schedule.availableSlots(slot -> bookedBySlot.getOrDefault(slot, 0L).intValue());
                 }
+                days.put(date, mask);
             }
-            // Check if there is an appointment at the same time in a different institution
-            if (appointment.getTime().equals(newAppointmentTime) && !appointment.getInstitution().getId().equals(newInstitutionId)) {
-                logger.warn("Visitor {} has a concurrent appointment at the same time in a different institution.", visitorId);
-                return false; // User has a concurrent appointment at the same time
-            }
+            availability.put(department, new AvailabilityCalendar.DepartmentAvailability(schedule.times(), days));
         }
 
-        return true; // All conditions are met, user can make a new appointment
+        return new AvailabilityCalendar(institutionId, from, to, availability);
     }
 
-    private boolean isAppointmentResolved(Appointment appointment) {
-        return "attended".equalsIgnoreCase(appointment.getAppointmentstatus()) ||
-                "canceled".equalsIgnoreCase(appointment.getAppointmentstatus());
+    private boolean canMakeAppointment(int visitorId, LocalDate newAppointmentDate, Time newAppointmentTime, Long newInstitutionId, String newDepartment) {
+        // Two indexed existence checks, so the cost does not grow with the visitor's history
+        if (appointmentRepository.existsByVisitorVisitoridAndDepartmentAndAppointmentstatusNotIn(visitorId, newDepartment, RESOLVED_STATUSES)) {
+            logger.warn("Visitor {} has unresolved appointment in department {}.", visitorId, newDepartment);
+            return false; // User has an existing unresolved appointment in the same department, cannot make a new appointment
+        }
+
+        // Check if there is an appointment at the same time in a different institution
+        if (appointmentRepository.existsConcurrentAppointment(visitorId, newAppointmentDate, newAppointmentTime, newInstitutionId, RESOLVED_STATUSES)) {
+            logger.warn("Visitor {} has a concurrent appointment at the same time in a different institution.", visitorId);
+            return false; // User has a concurrent appointment at the same time
+        }
+
+        return true; // All conditions are met, user can make a new appointment
     }
-    public List<Appointment> getAppointmentsByPhysioId(int physioId) {
-        return appointmentRepository.findByUserUserid(physioId);
+
+    @ReadOnlyTransactional
+    public List<AppointmentView> getAppointmentsByPhysioId(int physioId) {
+        return shardedQueries.gather(() -> appointmentRepository.findViewsByPhysioId(physioId));
     }
+    @Transactional
     public Appointment updateAppointment(int id, Appointment newAppointment) {
         Optional<Appointment> optionalAppointment = appointmentRepository.findById(id);
 
         if (optionalAppointment.isPresent()) {
             Appointment existingAppointment = optionalAppointment.get();
+            requireSameSlot(existingAppointment, newAppointment);
+            // Status changes go through the state machine after the other fields are saved
+            AppointmentStatus targetStatus = newAppointment.getAppointmentstatus();
+            boolean statusChanged = targetStatus != null && targetStatus != existingAppointment.getAppointmentstatus();
+            if (statusChanged) {
+                requireUpdatableStatus(existingAppointment, targetStatus);
+            }
+            String previousPasscode = existingAppointment.getPasscode();
             existingAppointment.setVisitor(newAppointment.getVisitor());
-            existingAppointment.setDate(newAppointment.getDate());
-            existingAppointment.setTime(newAppointment.getTime());
-            existingAppointment.setAppointmentstatus(newAppointment.getAppointmentstatus());
-            existingAppointment.setDepartment(newAppointment.getDepartment());
             existingAppointment.setPasscode(newAppointment.getPasscode());
-            existingAppointment.setInstitution(newAppointment.getInstitution());
 
-            return appointmentRepository.save(existingAppointment);
+            Appointment savedAppointment = appointmentRepository.saveAndFlush(existingAppointment);
+            afterCommit(() -> {
+                activePasscodeIndex.remove(previousPasscode);
+                activePasscodeIndex.record(savedAppointment);
+            });
+            return statusChanged ? transition(savedAppointment, targetStatus) : savedAppointment;
         }
 
         return null;
     }
 
+    // The seat is claimed in the slot inventory, so moving it is left to the reschedule endpoint
+    private void requireSameSlot(Appointment appointment, Appointment update) {
+        Long institutionId = update.getInstitution() == null ? null : update.getInstitution().getId();
+        if (changed(appointment.getDate(), update.getDate())
+                || changed(localTime(appointment.getTime()), localTime(update.getTime()))
+                || changed(appointment.getDepartment(), update.getDepartment())
+                || changed(appointment.getInstitution().getId(), institutionId)) {
+            throw new AppointmentConflictException("Appointment with ID " + appointment.getAppointmentid()
+                    + " cannot change its slot by an update; use the reschedule endpoint.");
+        }
+    }
+
+    private static LocalTime localTime(Time time) {
+        return time == null ? null : time.toLocalTime();
+    }
+
+    // A field left out of the update keeps its value
+    private static boolean changed(Object current, Object requested) {
+        return requested != null && !Objects.equals(current, requested);
+    }
+
+    // Moves and bookings have their own endpoints; only the transitions below can be requested by update
+    private void requireUpdatableStatus(Appointment appointment, AppointmentStatus target) {
+        if (target == AppointmentStatus.BOOKED || target == AppointmentStatus.RESCHEDULED) {
+            throw new AppointmentConflictException("Appointment with ID " + appointment.getAppointmentid()
+                    + " cannot be set to " + target + " by an update; use the reschedule endpoint.");
+        }
+        if (appointment.getAppointmentstatus() == null || !appointment.getAppointmentstatus().canTransitionTo(target)) {
+            throw new AppointmentConflictException("Appointment with ID " + appointment.getAppointmentid()
+                    + " cannot move from " + appointment.getAppointmentstatus() + " to " + target + ".");
+        }
+    }
+
+    private Appointment transition(Appointment appointment, AppointmentStatus target) {
+        Appointment updated = switch (target) {
+            case CANCELED -> cancelAppointment(appointment.getAppointmentid());
+            case CHECKED_IN -> checkInAppointment(appointment);
+            case ATTENDED -> checkOutAppointment(appointment);
+            default -> null;
+        };
+        if (updated == null) {
+            throw new AppointmentConflictException("Appointment with ID " + appointment.getAppointmentid()
+                    + " can no longer move to " + target + ".");
+        }
+        return updated;
+    }
+
     public Appointment checkInAppointment(int id) {
-        Optional<Appointment> optionalAppointment = appointmentRepository.findById(id);
-        if (optionalAppointment.isPresent()) {
-            Appointment appointment = optionalAppointment.get();
-            if ("attended".equalsIgnoreCase(appointment.getAppointmentstatus())) {
-                logger.warn("Appointment with ID: {} has already been attended. Cannot check in again.", id);
-                return null; // or throw an exception if you prefer
-            }
-            if (!"checked_in".equalsIgnoreCase(appointment.getAppointmentstatus())) {
-                appointment.setAppointmentstatus("checked_in");
-                appointment.setCheckInTime(LocalDateTime.now());
-                logger.info("Checked in appointment with ID: {}", id);
-                return appointmentRepository.save(appointment);
-            } else {
-                logger.warn("Appointment with ID: {} is already checked in.", id);
-            }
-        } else {
+        Appointment appointment = appointmentRepository.findById(id).orElse(null);
+        if (appointment == null) {
             logger.warn("Appointment with ID: {} not found. Cannot check in.", id);
+            return null;
         }
-        return null;
+        return checkInAppointment(appointment);
     }
 
+    // For callers that already loaded the appointment: the check-in is then a single conditional update
+    public Appointment checkInAppointment(Appointment appointment) {
+        Appointment checkedInAppointment = appointmentTransitions.apply(appointment, AppointmentStatus.CHECKED_IN);
+        if (checkedInAppointment != null) {
+            logger.info("Checked in appointment with ID: {}", appointment.getAppointmentid());
+        }
+        return checkedInAppointment;
+    }
 
     public Appointment checkOutAppointment(int id) {
-        Optional<Appointment> optionalAppointment = appointmentRepository.findById(id);
-        if (optionalAppointment.isPresent()) {
-            Appointment appointment = optionalAppointment.get();
-            if ("checked_in".equalsIgnoreCase(appointment.getAppointmentstatus())) {
-                appointment.setAppointmentstatus("attended");
-                appointment.setCheckOutTime(LocalDateTime.now());
-                logger.info("Checked out appointment with ID: {}", id);
+        Appointment appointment = appointmentRepository.findById(id).orElse(null);
+        if (appointment == null) {
+            logger.warn("Appointment with ID: {} not found. Cannot check out.", id);
+            return null;
+        }
+        return checkOutAppointment(appointment);
+    }
 
+    public Appointment checkOutAppointment(Appointment appointment) {
+        Appointment checkedOutAppointment = appointmentTransitions.apply(appointment, AppointmentStatus.ATTENDED);
+        if (checkedOutAppointment != null) {
+            logger.info("Checked out appointment with ID: {}", appointment.getAppointmentid());
 
-                // Send checkout confirmation email
-                sendCheckoutConfirmationEmail(appointment);
+            // Send checkout confirmation email
+            sendCheckoutConfirmationEmail(checkedOutAppointment);
+            activePasscodeIndex.remove(checkedOutAppointment.getPasscode());
+        }
+        return checkedOutAppointment;
+    }
 
-                return appointmentRepository.save(appointment);
-            } else {
-                logger.warn("Appointment with ID: {} is not checked in.", id);
-            }
-        } else {
-            logger.warn("Appointment with ID: {} not found. Cannot check out.", id);
+    /**
+     * Checks in today's appointment that owns the passcode. The passcode is resolved from the
+     * active passcode index, and the status changes with one conditional update, which also
+     * rejects a wrong day or a status that cannot be checked in.
+     */
+    public Appointment checkInByPasscode(String passcode) {
+        Integer id = resolvePasscode(passcode);
+        int updated = appointmentRepository.checkInByPasscode(id, passcode, LocalDate.now(),
+                AppointmentStatus.sourcesOf(AppointmentStatus.CHECKED_IN), AppointmentStatus.CHECKED_IN, LocalDateTime.now());
+        if (updated == 0) {
+            logger.warn("Appointment with ID: {} cannot be checked in today.", id);
+            return null;
         }
-        return null;
+        logger.info("Checked in appointment with ID: {} by passcode", id);
+        return appointmentRepository.findById(id).orElse(null);
     }
 
+    public Appointment checkOutByPasscode(String passcode) {
+        Integer id = resolvePasscode(passcode);
+        int updated = appointmentRepository.checkOutByPasscode(id, passcode,
+                AppointmentStatus.sourcesOf(AppointmentStatus.ATTENDED), AppointmentStatus.ATTENDED, LocalDateTime.now());
+        if (updated == 0) {
+            logger.warn("Appointment with ID: {} is not checked in.", id);
+            return null;
+        }
+        activePasscodeIndex.remove(passcode);
+        logger.info("Checked out appointment with ID: {} by passcode", id);
+        Appointment appointment = appointmentRepository.findById(id).orElse(null);
+        if (appointment != null) {
+            sendCheckoutConfirmationEmail(appointment);
+        }
+        return appointment;
+    }
+
+    // The index covers today's active passcodes; anything else falls back to the passcode's unique index
+    private Integer resolvePasscode(String passcode) {
+        Integer id = activePasscodeIndex.find(passcode);
+        if (id == null) {
+            id = appointmentRepository.findIdByPasscode(passcode);
+        }
+        if (id == null) {
+            throw new AppointmentNotFoundException("No appointment found for the given passcode.");
+        }
+        return id;
+    }
 
     private void sendCheckoutConfirmationEmail(Appointment appointment) {
         try {
             emailService.sendCheckoutConfirmationEmail(appointment);
-            logger.info("Checkout confirmation email sent successfully to: {}", appointment.getVisitor().getEmail());
+            logger.info("Checkout confirmation email queued for: {}", appointment.getVisitor().getEmail());
         } catch (Exception e) {
-            logger.error("Failed to send checkout confirmation email", e);
+            logger.error("Failed to queue checkout confirmation email", e);
         }
     }
 
+    @Transactional
     public Appointment cancelAppointment(int id) {
-        Optional<Appointment> optionalAppointment = appointmentRepository.findById(id);
-        if (optionalAppointment.isPresent()) {
-            Appointment appointment = optionalAppointment.get();
-            if ("canceled".equalsIgnoreCase(appointment.getAppointmentstatus())) {
-                throw new AppointmentAlreadyCanceledException("Appointment with ID " + id + " is already canceled.. cannot cancel a cancelled appointment.");
-            } else if ("attended".equalsIgnoreCase(appointment.getAppointmentstatus())) {
-                throw new AppointmentAlreadyAttendedException("Appointment with ID " + id + " is already attended.. cannot cancel an attended appointment");
-            } else {
-                appointment.setAppointmentstatus("canceled");
-                LocalDateTime now = LocalDateTime.now();
-                appointment.setCancellationDate(now);
-                logger.info("Cancelling appointment with ID: {}", id);
-
-                // Send cancellation email
-                emailService.sendCancellationEmail(appointment);
-
-                return appointmentRepository.save(appointment);
-            }
-        } else {
-            throw new AppointmentNotFoundException("Appointment with ID " + id + " not found.");
+        Appointment appointment = appointmentRepository.findById(id)
+                .orElseThrow(() -> new AppointmentNotFoundException("Appointment with ID " + id + " not found."));
+        rejectResolved(appointment);
+
+        logger.info("Cancelling appointment with ID: {}", id);
+        Appointment savedAppointment = appointmentTransitions.apply(appointment, AppointmentStatus.CANCELED);
+        if (savedAppointment == null) {
+            // Resolved by someone else in the meantime
+            rejectResolved(appointmentRepository.findById(id).orElse(appointment));
+            throw new AppointmentConflictException("Appointment with ID " + id + " can no longer be canceled.");
+        }
+
+        // Send cancellation email
+        emailService.sendCancellationEmail(savedAppointment);
+        physioDigestService.notify(savedAppointment, PhysioDigestEvent.Type.CANCELED);
+
+        slotInventoryService.releaseSeat(savedAppointment);
+        afterCommit(() -> {
+            slotOccupancyIndex.recordReleased(savedAppointment);
+            reminderScheduler.cancel(savedAppointment.getAppointmentid());
+            activePasscodeIndex.remove(savedAppointment.getPasscode());
+        });
+        invalidationBus.publish(CacheInvalidation.slot(savedAppointment));
+        return savedAppointment;
+    }
+
+    private void rejectResolved(Appointment appointment) {
+        if (appointment.getAppointmentstatus() == AppointmentStatus.CANCELED) {
+            throw new AppointmentAlreadyCanceledException("Appointment with ID " + appointment.getAppointmentid() + " is already canceled.. cannot cancel a cancelled appointment.");
+        } else if (appointment.getAppointmentstatus() == AppointmentStatus.ATTENDED) {
+            throw new AppointmentAlreadyAttendedException("Appointment with ID " + appointment.getAppointmentid() + " is already attended.. cannot cancel an attended appointment");
         }
     }
 
@@ -362,30 +582,44 @@ public class AppointmentService {
 
     }
 
-    public List<Appointment> getAppointmentsByInstitutionIdAndDateAndStatus(Long institutionId, LocalDate date, String status) {
+    @ReadOnlyTransactional
+    public List<AppointmentView> getAppointmentsByInstitutionIdAndDateAndStatus(Long institutionId, LocalDate date, String status) {
         logger.info("Fetching appointments for institution ID: {}, date: {}, status: {}", institutionId, date, status);
-        List<Appointment> appointments = appointmentRepository.findByInstitutionIdAndDateAndAppointmentstatus(institutionId, date, status);
+        List<AppointmentView> appointments = appointmentRepository.findViewsByInstitutionIdAndDateAndStatus(institutionId, date, AppointmentStatus.from(status));
         logger.info("Retrieved {} appointments for institution ID: {}, date: {}, status: {}", appointments.size(), institutionId, date, status);
         return appointments;
     }
 
-    public List<Appointment> getAppointmentsByVisitorId(int visitorId) {
-        List<Appointment> appointments = appointmentRepository.findByVisitorVisitorid(visitorId);
+    @ReadOnlyTransactional
+    public List<AppointmentView> getAppointmentsByVisitorId(int visitorId) {
+        List<AppointmentView> appointments = shardedQueries.gather(() -> appointmentRepository.findViewsByVisitorId(visitorId));
         logger.info("Retrieved {} appointments for visitor with ID: {}", appointments.size(), visitorId);
         return appointments;
     }
 
-    @Transactional
+    // The versioned save fails if the row changed since it was read; the whole move is then retried
     public Appointment rescheduleAppointment(int id, LocalDate newDate, Time newTime) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> reschedule(id, newDate, newTime));
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxTransitionAttempts) {
+                    throw new AppointmentConflictException("Appointment with ID " + id + " was changed concurrently, please retry.");
+                }
+                logger.debug("Reschedule of appointment {} lost a race (attempt {}), retrying", id, attempt);
+            }
+        }
+    }
+
+    private Appointment reschedule(int id, LocalDate newDate, Time newTime) {
         Optional<Appointment> optionalAppointment = appointmentRepository.findById(id);
 
         if (optionalAppointment.isPresent()) {
             Appointment existingAppointment = optionalAppointment.get();
 
-            // Check if the appointment status is 'attended' or 'canceled'
-            if (existingAppointment.getAppointmentstatus().equalsIgnoreCase("attended") ||
-                    existingAppointment.getAppointmentstatus().equalsIgnoreCase("canceled")) {
-                throw new Exception("Rescheduling not allowed for attended or canceled appointments.");
+            // Only booked or already rescheduled appointments can move
+            if (!existingAppointment.getAppointmentstatus().canTransitionTo(AppointmentStatus.RESCHEDULED)) {
+                throw new IllegalStateException("Rescheduling not allowed for " + existingAppointment.getAppointmentstatus() + " appointments.");
             }
 
             // Convert java.sql.Time to java.time.LocalTime
@@ -397,14 +631,29 @@ public class AppointmentService {
                 throw new RuntimeException("Cannot reschedule to a past date or time.");
             }
 
+            // Keep a copy of the slot being vacated for the occupancy index
+            Appointment previousSlot = new Appointment();
+            previousSlot.setInstitution(existingAppointment.getInstitution());
+            previousSlot.setDepartment(existingAppointment.getDepartment());
+            previousSlot.setDate(existingAppointment.getDate());
+            previousSlot.setTime(existingAppointment.getTime());
+
+            // Move the seat: free the old slot and claim the new one in the same transaction
+            slotInventoryService.releaseSeat(previousSlot);
+            if (!slotInventoryService.claimSeat(existingAppointment.getInstitution().getId(), existingAppointment.getDepartment(), newDate, newTime)) {
+                throw new RuntimeException("The selected slot is fully booked.");
+            }
+
             // Generate a new passcode
+            String previousPasscode = existingAppointment.getPasscode();
             String newPasscode = passcodeGenerator.generateUniquePasscode();
             existingAppointment.setPasscode(newPasscode);
 
             // Update appointment details
             existingAppointment.setDate(newDate);
             existingAppointment.setTime(newTime);
-            existingAppointment.setAppointmentstatus("rescheduled");
+            existingAppointment.setAppointmentstatus(AppointmentStatus.RESCHEDULED);
+            existingAppointment.setReminderSentAt(null);
 
             // If the appointment is virtual, generate a new meeting link
             if (existingAppointment.getMeetingType() == MeetingType.VIRTUAL) {
@@ -419,33 +668,39 @@ public class AppointmentService {
             }
 
 
-            // ✅ Save and return the updated appointment
-            appointmentRepository.save(existingAppointment);
+            // ✅ Save and return the updated appointment; flushing here surfaces a version conflict inside the retry
+            existingAppointment = appointmentRepository.saveAndFlush(existingAppointment);
+            Appointment rescheduled = existingAppointment;
+            afterCommit(() -> {
+                slotOccupancyIndex.recordReleased(previousSlot);
+                slotOccupancyIndex.recordBooked(rescheduled);
+                reminderScheduler.schedule(rescheduled);
+                activePasscodeIndex.remove(previousPasscode);
+                activePasscodeIndex.record(rescheduled);
+            });
+            invalidationBus.publish(CacheInvalidation.slot(previousSlot));
+            invalidationBus.publish(CacheInvalidation.slot(existingAppointment));
             emailService.sendRescheduledAppointmentEmail(existingAppointment);
+            physioDigestService.notify(existingAppointment, PhysioDigestEvent.Type.RESCHEDULED);
 
             return existingAppointment;
         }
 
         // ✅ Throw an error if no appointment is found
-        throw new Exception("Appointment not found");
+        throw new AppointmentNotFoundException("Appointment not found");
     }
-    @Scheduled(fixedRate = 60000) // Runs every 60 seconds (1 minute)
-    public void sendAppointmentReminders() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime reminderTime = now.plusMinutes(30); // Find appointments starting in 30 minutes
-
-        LocalDate today = now.toLocalDate();
-        Time startTime = Time.valueOf(now.toLocalTime());
-        Time endTime = Time.valueOf(reminderTime.toLocalTime());
 
-        List<Appointment> upcomingAppointments = appointmentRepository.findAppointmentsBetween(today, startTime, endTime);
-
-        for (Appointment appointment : upcomingAppointments) {
-            if (appointment.getMeetingType() == MeetingType.VIRTUAL) {
-                emailService.sendReminderEmail(appointment); // Ensure this method exists in `EmailService`
-            }
+    // The in-memory indexes only follow committed data, so a rolled-back change leaves them untouched
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
-
-
 }
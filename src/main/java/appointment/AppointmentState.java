@@ -0,0 +1,7 @@
+package appointment;
+
+// Current status and version of an appointment, read when a transition has to be retried
+public interface AppointmentState {
+    String getStatus();
+    long getVersion();
+}
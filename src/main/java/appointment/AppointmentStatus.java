@@ -0,0 +1,69 @@
+package appointment;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lifecycle of an appointment. Stored and serialized as the lowercase values the table has always
+ * held; {@link #canTransitionTo} is the single place that says which moves are allowed.
+ */
+public enum AppointmentStatus {
+    BOOKED("booked"),
+    RESCHEDULED("rescheduled"),
+    CHECKED_IN("checked_in"),
+    ATTENDED("attended"),
+    CANCELED("canceled");
+
+    private final String value;
+
+    AppointmentStatus(String value) {
+        this.value = value;
+    }
+
+    @JsonValue
+    public String value() {
+        return value;
+    }
+
+    @JsonCreator
+    public static AppointmentStatus from(String value) {
+        for (AppointmentStatus status : values()) {
+            if (status.value.equalsIgnoreCase(value) || status.name().equalsIgnoreCase(value)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown appointment status: " + value);
+    }
+
+    public boolean isResolved() {
+        return this == ATTENDED || this == CANCELED;
+    }
+
+    public boolean canTransitionTo(AppointmentStatus target) {
+        return switch (target) {
+            case BOOKED -> false;
+            case RESCHEDULED, CHECKED_IN -> this == BOOKED || this == RESCHEDULED;
+            case ATTENDED -> this == CHECKED_IN;
+            case CANCELED -> !isResolved();
+        };
+    }
+
+    // Statuses from which the target can be reached, for "WHERE status IN (...)" guards
+    public static Set<AppointmentStatus> sourcesOf(AppointmentStatus target) {
+        Set<AppointmentStatus> sources = EnumSet.noneOf(AppointmentStatus.class);
+        for (AppointmentStatus status : values()) {
+            if (status.canTransitionTo(target)) {
+                sources.add(status);
+            }
+        }
+        return sources;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
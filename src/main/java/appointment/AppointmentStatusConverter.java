@@ -0,0 +1,19 @@
+package appointment;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Keeps the appointmentstatus column in its existing lowercase form
+@Converter(autoApply = true)
+public class AppointmentStatusConverter implements AttributeConverter<AppointmentStatus, String> {
+
+    @Override
+    public String convertToDatabaseColumn(AppointmentStatus status) {
+        return status == null ? null : status.value();
+    }
+
+    @Override
+    public AppointmentStatus convertToEntityAttribute(String value) {
+        return value == null ? null : AppointmentStatus.from(value);
+    }
+}
@@ -0,0 +1,60 @@
+package appointment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Applies status transitions as compare-and-set updates: {@code UPDATE ... WHERE status IN (sources)
+ * AND version = ?}. The first attempt uses the status and version the caller already loaded, so an
+ * uncontended transition is a single statement. When another writer got there first the current
+ * state is re-read and the update retried a bounded number of times.
+ */
+@Component
+public class AppointmentTransitions {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentTransitions.class);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Value("${appointment.transitions.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * @return the appointment after the transition, or null when its current status does not allow it
+     * @throws AppointmentConflictException when concurrent updates kept winning for every attempt
+     */
+    public Appointment apply(Appointment current, AppointmentStatus target) {
+        int id = current.getAppointmentid();
+        AppointmentStatus status = current.getAppointmentstatus();
+        long version = current.getVersion();
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (status == null || !status.canTransitionTo(target)) {
+                logger.warn("Appointment with ID: {} cannot move from {} to {}.", id, status, target);
+                return null;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            int updated = appointmentRepository.transition(id, AppointmentStatus.sourcesOf(target), target, version,
+                    target == AppointmentStatus.CHECKED_IN ? now : null,
+                    target == AppointmentStatus.ATTENDED ? now : null,
+                    target == AppointmentStatus.CANCELED ? now : null);
+            if (updated == 1) {
+                return appointmentRepository.findById(id).orElse(null);
+            }
+            AppointmentState state = appointmentRepository.findCurrentState(id);
+            if (state == null) {
+                throw new AppointmentNotFoundException("Appointment with ID " + id + " not found.");
+            }
+            logger.debug("Transition of appointment {} to {} lost a race (attempt {}), now {} v{}",
+                    id, target, attempt, state.getStatus(), state.getVersion());
+            status = AppointmentStatus.from(state.getStatus());
+            version = state.getVersion();
+        }
+        throw new AppointmentConflictException("Appointment with ID " + id + " was changed concurrently, please retry.");
+    }
+}
@@ -0,0 +1,49 @@
+package appointment;
+
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Read model for appointment listings. Built straight from a JPQL constructor expression, so no
+ * entities are hydrated; the nested references keep the field names of the entity JSON but carry
+ * only what a listing shows.
+ */
+public record AppointmentView(int appointmentid,
+                              LocalDate date,
+                              Time time,
+                              AppointmentStatus appointmentstatus,
+                              String department,
+                              String passcode,
+                              MeetingType meetingType,
+                              String videoMeetingLink,
+                              LocalDateTime checkInTime,
+                              LocalDateTime checkOutTime,
+                              LocalDateTime cancellationDate,
+                              VisitorRef visitor,
+                              InstitutionRef institution,
+                              PhysiotherapistRef user) {
+
+    public record VisitorRef(Integer visitorid, String visitorname, String email) {
+    }
+
+    public record InstitutionRef(Long id, String name) {
+    }
+
+    public record PhysiotherapistRef(Integer userid, String username, String email) {
+    }
+
+    // Flat form used by the JPQL constructor expression
+    public AppointmentView(int appointmentid, LocalDate date, Time time, AppointmentStatus appointmentstatus,
+                           String department, String passcode, MeetingType meetingType, String videoMeetingLink,
+                           LocalDateTime checkInTime, LocalDateTime checkOutTime, LocalDateTime cancellationDate,
+                           Integer visitorid, String visitorname, String visitorEmail,
+                           Long institutionId, String institutionName,
+                           Integer userid, String username, String userEmail) {
+        this(appointmentid, date, time, appointmentstatus, department, passcode, meetingType, videoMeetingLink,
+                checkInTime, checkOutTime, cancellationDate,
+                visitorid == null ? null : new VisitorRef(visitorid, visitorname, visitorEmail),
+                institutionId == null ? null : new InstitutionRef(institutionId, institutionName),
+                userid == null ? null : new PhysiotherapistRef(userid, username, userEmail));
+    }
+}
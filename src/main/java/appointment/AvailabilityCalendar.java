@@ -0,0 +1,19 @@
+package appointment;
+
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Availability for a date range, per department. Each department lists its bookable times once;
+ * every day is then a bitmask over that list, where bit i set means slots[i] still has seats.
+ */
+public record AvailabilityCalendar(Long institutionId,
+                                   LocalDate from,
+                                   LocalDate to,
+                                   Map<String, DepartmentAvailability> departments) {
+
+    public record DepartmentAvailability(List<Time> slots, Map<LocalDate, Long> days) {
+    }
+}
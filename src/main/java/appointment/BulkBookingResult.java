@@ -0,0 +1,16 @@
+package appointment;
+
+/**
+ * Outcome of one item of a bulk booking request. {@code index} is the item's position in the
+ * request; rejected items carry the reason and no appointment id.
+ */
+public record BulkBookingResult(int index, boolean booked, Integer appointmentId, String passcode, String error) {
+
+    static BulkBookingResult booked(int index, Appointment appointment) {
+        return new BulkBookingResult(index, true, appointment.getAppointmentid(), appointment.getPasscode(), null);
+    }
+
+    static BulkBookingResult rejected(int index, String error) {
+        return new BulkBookingResult(index, false, null, null, error);
+    }
+}
@@ -0,0 +1,267 @@
+package appointment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Books a batch of appointments in one transaction. Visitors and their open appointments are
+ * fetched once for the whole batch, institutions and physiotherapists come from the tenant
+ * directory, passcodes are assigned in bulk, the rows go in as batched inserts on pre-allocated
+ * ids, and confirmation emails go to the outbox in the same transaction. Every item gets its own
+ * result, so one bad row does not fail the batch.
+ */
+@Service
+public class BulkBookingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkBookingService.class);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private VisitorRepository visitorRepository;
+
+    @Autowired
+    private TenantDirectory tenantDirectory;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private SlotInventoryService slotInventoryService;
+
+    @Autowired
+    private SlotScheduleRegistry slotScheduleRegistry;
+
+    @Autowired
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    @Autowired
+    private ReminderScheduler reminderScheduler;
+
+    @Autowired
+    private ActivePasscodeIndex activePasscodeIndex;
+
+    @Autowired
+    private PasscodeGenerator passcodeGenerator;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private PhysioDigestService physioDigestService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Value("${appointment.bulk.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${appointment.bulk.jdbc-batch-size:100}")
+    private int jdbcBatchSize;
+
+    @Transactional
+    public List<BulkBookingResult> bookAll(List<Appointment> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one appointment is required");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A bulk booking may contain at most " + maxBatchSize + " appointments");
+        }
+
+        // Reference data for the whole batch, one query per table
+        Map<Integer, Visitor> visitors = byId(visitorRepository.findAllById(
+                collectIds(requests, a -> a.getVisitor() == null ? null : a.getVisitor().getVisitorid())), Visitor::getVisitorid);
+        Map<Integer, List<OpenAppointment>> openAppointments = new HashMap<>();
+        if (!visitors.isEmpty()) {
+            for (OpenAppointment open : appointmentRepository.findOpenAppointments(visitors.keySet(), AppointmentService.RESOLVED_STATUSES)) {
+                openAppointments.computeIfAbsent(open.visitorId(), id -> new ArrayList<>()).add(open);
+            }
+        }
+
+        BulkBookingResult[] results = new BulkBookingResult[requests.size()];
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Appointment appointment = requests.get(i);
+            String error = resolve(appointment, visitors);
+            if (error == null) {
+                error = checkEligibility(appointment, openAppointments);
+            }
+            if (error == null && !slotInventoryService.claimSeat(appointment)) {
+                error = "The selected slot is fully booked.";
+            }
+            if (error != null) {
+                results[i] = BulkBookingResult.rejected(i, error);
+                continue;
+            }
+            // Later items of the same batch must see this one as an open appointment
+            openAppointments.computeIfAbsent(appointment.getVisitor().getVisitorid(), id -> new ArrayList<>())
+                    .add(OpenAppointment.of(appointment));
+            accepted.add(i);
+        }
+
+        if (!accepted.isEmpty()) {
+            List<Appointment> booked = insert(requests, accepted);
+            for (int k = 0; k < accepted.size(); k++) {
+                int index = accepted.get(k);
+                results[index] = BulkBookingResult.booked(index, booked.get(k));
+            }
+            // Queued in the booking transaction; the outbox sends them once it commits
+            for (Appointment appointment : booked) {
+                emailService.sendBookingConfirmationEmail(appointment);
+                physioDigestService.notify(appointment, PhysioDigestEvent.Type.ASSIGNED);
+            }
+            afterCommit(booked);
+            booked.stream().map(CacheInvalidation::slot).distinct().forEach(invalidationBus::publish);
+        }
+        logger.info("Bulk booking: {} of {} appointments booked", accepted.size(), requests.size());
+        return List.of(results);
+    }
+
+    // Replaces the request's references with the prefetched entities; returns an error message or null
+    private String resolve(Appointment appointment, Map<Integer, Visitor> visitors) {
+        if (appointment.getVisitor() == null) {
+            return "Visitor details are required.";
+        }
+        Visitor visitor = visitors.get(appointment.getVisitor().getVisitorid());
+        if (visitor == null) {
+            return "Visitor not found for ID: " + appointment.getVisitor().getVisitorid();
+        }
+        if (appointment.getInstitution() == null || appointment.getInstitution().getId() == null) {
+            return "Institution details are required.";
+        }
+        Institution institution = tenantDirectory.institution(appointment.getInstitution().getId()).orElse(null);
+        if (institution == null) {
+            return "Invalid institution ID: " + appointment.getInstitution().getId();
+        }
+        if (shardMap.isEnabled() && !shardMap.shardOf(institution.getId()).equals(ShardContext.currentOrDefault())) {
+            return "Institution " + institution.getId() + " is stored on another shard; book it with the "
+                    + ShardContextFilter.INSTITUTION_HEADER + " header.";
+        }
+        if (appointment.getUser() == null) {
+            return "Physiotherapist details are required.";
+        }
+        Users user = tenantDirectory.physiotherapist(appointment.getUser().getUserid()).orElse(null);
+        if (user == null) {
+            return "User " + appointment.getUser().getUserid() + " is not a physiotherapist.";
+        }
+        if (appointment.getDate() == null || appointment.getTime() == null || appointment.getDepartment() == null) {
+            return "Date, time and department are required.";
+        }
+        if (!tenantDirectory.offersDepartment(institution.getId(), appointment.getDepartment())) {
+            return "Institution " + institution.getId() + " has no department " + appointment.getDepartment() + ".";
+        }
+        if (!appointmentService.isDateTimeInFuture(appointment.getDate(), appointment.getTime().toLocalTime())) {
+            return "Cannot book an appointment in the past";
+        }
+        if (slotScheduleRegistry.scheduleFor(institution.getId(), appointment.getDepartment()).indexOf(appointment.getTime().toLocalTime()) < 0) {
+            return appointment.getTime() + " is not a bookable slot for department " + appointment.getDepartment() + ".";
+        }
+
+        appointment.setVisitor(visitor);
+        appointment.setInstitution(institution);
+        appointment.setUser(user);
+        return null;
+    }
+
+    // Same rules as the single booking path, evaluated against the prefetched open appointments
+    private String checkEligibility(Appointment appointment, Map<Integer, List<OpenAppointment>> openAppointments) {
+        for (OpenAppointment open : openAppointments.getOrDefault(appointment.getVisitor().getVisitorid(), List.of())) {
+            if (appointment.getDepartment().equals(open.department())) {
+                return "Visitor has an unresolved appointment in department " + appointment.getDepartment() + ".";
+            }
+            if (appointment.getDate().equals(open.date()) && appointment.getTime().equals(open.time())
+                    && !appointment.getInstitution().getId().equals(open.institutionId())) {
+                return "Visitor has a concurrent appointment at the same time in a different institution.";
+            }
+        }
+        return null;
+    }
+
+    private List<Appointment> insert(List<Appointment> requests, List<Integer> accepted) {
+        List<String> passcodes = passcodeGenerator.generateUniquePasscodes(accepted.size());
+        List<Appointment> rows = new ArrayList<>(accepted.size());
+        for (int k = 0; k < accepted.size(); k++) {
+            Appointment appointment = requests.get(accepted.get(k));
+            // Always a new row, whatever id or version the request carried
+            appointment.setAppointmentid(0);
+            appointment.setVersion(0);
+            appointment.setPasscode(passcodes.get(k));
+            appointment.setAppointmentstatus(AppointmentStatus.BOOKED);
+            if (appointment.getMeetingType() == null) {
+                appointment.setMeetingType(MeetingType.PHYSICAL);
+            }
+            if (appointment.getMeetingType() == MeetingType.VIRTUAL) {
+                appointment.setVideoMeetingLink(appointmentService.generateMeetingLink(appointment.getUser()));
+            }
+            rows.add(appointment);
+        }
+
+        // Ids are assigned on persist from the table generator, so the flush sends the rows as JDBC batches
+        Session session = entityManager.unwrap(Session.class);
+        Integer previousBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(jdbcBatchSize);
+        try {
+            List<Appointment> booked = appointmentRepository.saveAll(rows);
+            appointmentRepository.flush();
+            return booked;
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+        }
+    }
+
+    // The occupancy index only learns about the bookings once they are committed
+    private void afterCommit(List<Appointment> booked) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                booked.forEach(slotOccupancyIndex::recordBooked);
+                booked.forEach(reminderScheduler::schedule);
+                booked.forEach(activePasscodeIndex::record);
+            }
+        });
+    }
+
+    private static <K> Set<K> collectIds(List<Appointment> requests, Function<Appointment, K> id) {
+        Set<K> ids = new HashSet<>();
+        for (Appointment appointment : requests) {
+            K key = id.apply(appointment);
+            if (key != null) {
+                ids.add(key);
+            }
+        }
+        return ids;
+    }
+
+    private static <K, T> Map<K, T> byId(List<T> entities, Function<T, K> id) {
+        Map<K, T> map = new HashMap<>();
+        for (T entity : entities) {
+            map.put(id.apply(entity), entity);
+        }
+        return map;
+    }
+}
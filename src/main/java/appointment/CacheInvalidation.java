@@ -0,0 +1,48 @@
+package appointment;
+
+import java.time.LocalDate;
+
+/**
+ * A change made on one instance that other instances have to drop from their in-process caches.
+ * Only the keys travel; every node reloads the data itself. Slot events name the institution,
+ * department and date whose occupancy changed.
+ */
+public record CacheInvalidation(Type type, Long institutionId, String department, LocalDate date) {
+
+    public enum Type {
+        INSTITUTION, DEPARTMENT, USER, EXERCISE, SLOT
+    }
+
+    private static final String SEPARATOR = "|";
+
+    public static CacheInvalidation of(Type type) {
+        return new CacheInvalidation(type, null, null, null);
+    }
+
+    public static CacheInvalidation institution(Long institutionId) {
+        return new CacheInvalidation(Type.INSTITUTION, institutionId, null, null);
+    }
+
+    public static CacheInvalidation slot(Appointment appointment) {
+        Long institutionId = appointment.getInstitution() == null ? null : appointment.getInstitution().getId();
+        return new CacheInvalidation(Type.SLOT, institutionId, appointment.getDepartment(), appointment.getDate());
+    }
+
+    // type|institutionId|date|department; the department goes last since it is free text
+    String encode() {
+        return type + SEPARATOR + (institutionId == null ? "" : institutionId)
+                + SEPARATOR + (date == null ? "" : date)
+                + SEPARATOR + (department == null ? "" : department);
+    }
+
+    static CacheInvalidation decode(String value) {
+        String[] parts = value.split("\\|", 4);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed cache invalidation: " + value);
+        }
+        return new CacheInvalidation(Type.valueOf(parts[0]),
+                parts[1].isEmpty() ? null : Long.valueOf(parts[1]),
+                parts[3].isEmpty() ? null : parts[3],
+                parts[2].isEmpty() ? null : LocalDate.parse(parts[2]));
+    }
+}
@@ -0,0 +1,5 @@
+package appointment;
+
+// The two columns a campaign needs per visitor, so recipient chunks hydrate no entities
+public record CampaignRecipient(int visitorid, String email) {
+}
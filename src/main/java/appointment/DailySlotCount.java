@@ -0,0 +1,12 @@
+package appointment;
+
+import java.sql.Time;
+import java.time.LocalDate;
+
+// Projection for the grouped availability calendar query
+public interface DailySlotCount {
+    String getDepartment();
+    LocalDate getDate();
+    Time getTime();
+    long getBooked();
+}
@@ -8,8 +8,11 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.JoinColumn;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "department")
 public class Department {
 
@@ -24,6 +27,14 @@ public class Department {
     @Column(name = "departmentname")
     private String departmentname;
 
+    // Bookable times as "HH:mm" or "HH:mm=capacity", comma separated; null uses the default template
+    @Column(name = "slot_template")
+    private String slotTemplate;
+
+    // Capacity for template entries without an explicit one; null uses the default capacity
+    @Column(name = "slot_capacity")
+    private Integer slotCapacity;
+
     // Getters and Setters
     public int getDepartment_id() {
         return department_id;
@@ -44,4 +55,20 @@ public class Department {
     public void setDepartmentname(String departmentname) {
         this.departmentname = departmentname;
     }
+
+    public String getSlotTemplate() {
+        return slotTemplate;
+    }
+
+    public void setSlotTemplate(String slotTemplate) {
+        this.slotTemplate = slotTemplate;
+    }
+
+    public Integer getSlotCapacity() {
+        return slotCapacity;
+    }
+
+    public void setSlotCapacity(Integer slotCapacity) {
+        this.slotCapacity = slotCapacity;
+    }
 }
@@ -34,17 +34,34 @@ public class DepartmentController {
 
     @PostMapping
     public ResponseEntity<Department> createDepartment(@RequestBody Department department, @RequestParam Long institutionId) {
-        Department createdDepartment = departmentService.createDepartment(department, institutionId);
-        return ResponseEntity.ok(createdDepartment);                                                                                                                                                                                                                                                                                                                                                                                                                                
+        try {
+            Department createdDepartment = departmentService.createDepartment(department, institutionId);
+            return ResponseEntity.ok(createdDepartment);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Department was not created: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<Department> updateDepartment(@PathVariable int id, @RequestBody Department newDepartment) {
-        Department updatedDepartment = departmentService.updateDepartment(id, newDepartment);
-        if (updatedDepartment != null) {
-            return ResponseEntity.ok(updatedDepartment);
+        try {
+            Department updatedDepartment = departmentService.updateDepartment(id, newDepartment);
+            if (updatedDepartment != null) {
+                return ResponseEntity.ok(updatedDepartment);
+            }
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Department {} was not updated: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.notFound().build();
+    }
+
+    // Recompiles slot templates after they were changed directly in the database
+    @PostMapping("/slot-templates/reload")
+    public ResponseEntity<Void> reloadSlotTemplates() {
+        departmentService.reloadSlotSchedules();
+        return ResponseEntity.noContent().build();
     }
 
     @DeleteMapping("/{id}")
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class DepartmentService {
@@ -17,11 +18,26 @@ public class DepartmentService {
     @Autowired
     private InstitutionRepository institutionRepository;
 
+    @Autowired
+    private SlotScheduleRegistry slotScheduleRegistry;
+
+    @Autowired
+    private SlotInventoryService slotInventoryService;
+
+    @Autowired
+    private TenantDirectory tenantDirectory;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Autowired
+    private ShardMap shardMap;
+
     private static final Logger logger = LoggerFactory.getLogger(DepartmentService.class);
 
     public List<Department> getDepartmentsByInstitutionId(Long institutionId) {
         List<Department> departments = departmentRepository.findByInstitutionId(institutionId);
-        logger.info("Departments retrieved for Institution ID {}: {}", institutionId, departments);
+        logger.debug("Retrieved {} departments for Institution ID {}", departments.size(), institutionId);
         return departments;
     }
     
@@ -38,8 +54,13 @@ public class DepartmentService {
     public Department createDepartment(Department department, Long institutionId) {
         Optional<Institution> optionalInstitution = institutionRepository.findById(institutionId);
         if (optionalInstitution.isPresent()) {
+            validateSlotTemplate(department);
             department.setInstitution(optionalInstitution.get());
-            return departmentRepository.save(department);
+            Department savedDepartment = departmentRepository.save(department);
+            slotScheduleRegistry.reload();
+            tenantDirectory.rebuild();
+            invalidationBus.publish(CacheInvalidation.of(CacheInvalidation.Type.DEPARTMENT));
+            return savedDepartment;
         }
         throw new IllegalArgumentException("Institution not found");
     }
@@ -49,12 +70,55 @@ public class DepartmentService {
         if (optionalDepartment.isPresent()) {
             Department existingDepartment = optionalDepartment.get();
             existingDepartment.setDepartmentname(newDepartment.getDepartmentname());
-            return departmentRepository.save(existingDepartment);
+            // A request without slot fields keeps the current schedule instead of clearing it
+            if (newDepartment.getSlotTemplate() != null) {
+                existingDepartment.setSlotTemplate(newDepartment.getSlotTemplate());
+            }
+            if (newDepartment.getSlotCapacity() != null) {
+                existingDepartment.setSlotCapacity(newDepartment.getSlotCapacity());
+            }
+            validateSlotTemplate(existingDepartment);
+            Department savedDepartment = departmentRepository.save(existingDepartment);
+
+            Set<SlotScheduleRegistry.ScheduleKey> changed = slotScheduleRegistry.reload();
+            tenantDirectory.rebuild();
+            invalidationBus.publish(CacheInvalidation.of(CacheInvalidation.Type.DEPARTMENT));
+            applySchedules(changed);
+            return savedDepartment;
         }
         return null;
     }
 
     public void deleteDepartment(int id) {
         departmentRepository.deleteById(id);
+        slotScheduleRegistry.reload();
+        tenantDirectory.rebuild();
+        invalidationBus.publish(CacheInvalidation.of(CacheInvalidation.Type.DEPARTMENT));
+    }
+
+    // For templates edited in the database: the inventory follows just as after an update
+    public void reloadSlotSchedules() {
+        Set<SlotScheduleRegistry.ScheduleKey> changed = slotScheduleRegistry.reload();
+        invalidationBus.publish(CacheInvalidation.of(CacheInvalidation.Type.DEPARTMENT));
+        applySchedules(changed);
+    }
+
+    private void applySchedules(Set<SlotScheduleRegistry.ScheduleKey> changed) {
+        for (SlotScheduleRegistry.ScheduleKey key : changed) {
+            // Slot inventory lives with the institution's appointments, on its shard
+            ShardContext.run(shardMap.shardOf(key.institutionId()), () -> slotInventoryService.applySchedule(
+                    key.institutionId(), key.department(), slotScheduleRegistry.scheduleFor(key.institutionId(), key.department())));
+        }
+    }
+
+    // Rejects templates that would not compile instead of silently falling back to the default
+    private void validateSlotTemplate(Department department) {
+        if (department.getSlotTemplate() != null) {
+            SlotSchedule.compile(department.getSlotTemplate(),
+                    department.getSlotCapacity() != null ? department.getSlotCapacity() : 1);
+        }
+        if (department.getSlotCapacity() != null && department.getSlotCapacity() < 0) {
+            throw new IllegalArgumentException("Slot capacity cannot be negative");
+        }
     }
 }
@@ -0,0 +1,146 @@
+package appointment;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+
+import java.time.LocalDateTime;
+
+// An email sent to every visitor, or every visitor of one institution, with its send checkpoint
+@Entity
+@Table(name = "email_campaign", indexes = {
+        @Index(name = "idx_email_campaign_status", columnList = "status, id")
+})
+public class EmailCampaign {
+
+    public enum Status {
+        RUNNING, COMPLETED, CANCELED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "email_campaign_ids")
+    @TableGenerator(name = "email_campaign_ids", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "email_campaign", allocationSize = 1)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long id;
+
+    // Null sends to all visitors; otherwise to the visitors with an appointment at the institution
+    @Column(name = "institution_id")
+    private Long institutionId;
+
+    @Column(name = "subject", nullable = false)
+    private String subject;
+
+    // HTML body written by the institution, placed into campaignEmailTemplate
+    @Column(name = "message", nullable = false, columnDefinition = "text")
+    private String message;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status = Status.RUNNING;
+
+    // Recipients are sent in visitor id order, so this is where a restart resumes
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "last_visitor_id", nullable = false)
+    private int lastVisitorId;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "sent_count", nullable = false)
+    private int sentCount;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "failed_count", nullable = false)
+    private int failedCount;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public EmailCampaign() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getInstitutionId() {
+        return institutionId;
+    }
+
+    public void setInstitutionId(Long institutionId) {
+        this.institutionId = institutionId;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getLastVisitorId() {
+        return lastVisitorId;
+    }
+
+    public int getSentCount() {
+        return sentCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public String getLockedBy() {
+        return lockedBy;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+}
@@ -0,0 +1,47 @@
+package appointment;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+// Callers sign in through the staff filter chain in SecurityConfig; the service checks their institution
+@RestController
+@RequestMapping("/api/campaigns")
+public class EmailCampaignController {
+
+    @Autowired
+    private EmailCampaignService emailCampaignService;
+
+    @ApiOperation(value = "Email all visitors, or all visitors of one institution; sending starts in the background")
+    @PostMapping
+    public ResponseEntity<Object> createCampaign(
+            @ApiParam(value = "Subject, HTML message and optional institution id", required = true)
+            @RequestBody EmailCampaign campaign,
+            @AuthenticationPrincipal StaffUserDetails caller) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(emailCampaignService.createCampaign(campaign, caller));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ResponseModel(e.getMessage(), "INVALID_CAMPAIGN"));
+        }
+    }
+
+    @ApiOperation(value = "Get a campaign and its progress")
+    @GetMapping("/{id}")
+    public ResponseEntity<EmailCampaign> getCampaign(@PathVariable Long id, @AuthenticationPrincipal StaffUserDetails caller) {
+        return emailCampaignService.getCampaign(id, caller)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @ApiOperation(value = "Stop a running campaign")
+    @PutMapping("/{id}/cancel")
+    public ResponseEntity<EmailCampaign> cancelCampaign(@PathVariable Long id, @AuthenticationPrincipal StaffUserDetails caller) {
+        return emailCampaignService.cancelCampaign(id, caller)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
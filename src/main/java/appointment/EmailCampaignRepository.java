@@ -0,0 +1,57 @@
+package appointment;
+
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailCampaignRepository extends JpaRepository<EmailCampaign, Long> {
+
+    @Query("SELECT c.id FROM EmailCampaign c WHERE c.status = :running ORDER BY c.id")
+    List<Long> findIdsByStatus(@Param("running") EmailCampaign.Status running);
+
+    // Takes the campaign for one node; 0 rows means it is finished or another node is sending it
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailCampaign c SET c.lockedBy = :worker, c.lockedUntil = :lockedUntil " +
+            "WHERE c.id = :id AND c.status = :running AND (c.lockedUntil IS NULL OR c.lockedUntil < :now OR c.lockedBy = :worker)")
+    int claim(@Param("id") Long id,
+              @Param("running") EmailCampaign.Status running,
+              @Param("worker") String worker,
+              @Param("now") LocalDateTime now,
+              @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    // Records progress and extends the lock; 0 rows means the campaign was canceled or taken over
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailCampaign c SET c.lastVisitorId = :lastVisitorId, c.sentCount = c.sentCount + :sent, " +
+            "c.failedCount = c.failedCount + :failed, c.lockedUntil = :lockedUntil " +
+            "WHERE c.id = :id AND c.status = :running AND c.lockedBy = :worker")
+    int checkpoint(@Param("id") Long id,
+                   @Param("running") EmailCampaign.Status running,
+                   @Param("worker") String worker,
+                   @Param("lastVisitorId") int lastVisitorId,
+                   @Param("sent") int sent,
+                   @Param("failed") int failed,
+                   @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailCampaign c SET c.status = :status, c.completedAt = :completedAt, c.lockedBy = NULL, c.lockedUntil = NULL " +
+            "WHERE c.id = :id AND c.status = :running")
+    int finish(@Param("id") Long id,
+               @Param("running") EmailCampaign.Status running,
+               @Param("status") EmailCampaign.Status status,
+               @Param("completedAt") LocalDateTime completedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailCampaign c SET c.lockedBy = NULL, c.lockedUntil = NULL WHERE c.id = :id AND c.lockedBy = :worker")
+    int release(@Param("id") Long id, @Param("worker") String worker);
+}
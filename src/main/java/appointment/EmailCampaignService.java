@@ -0,0 +1,243 @@
+package appointment;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends campaigns: one email to every visitor, or to every visitor of one institution. Recipients
+ * are read in visitor id order in chunks of app.campaigns.chunk-size, so memory stays flat however
+ * many visitors there are. The body is rendered once per campaign and sent in batches over the
+ * pooled SMTP connections, paced to app.campaigns.rate-per-second. The last visitor id is
+ * checkpointed after every batch, so a campaign interrupted by a restart resumes after the last
+ * batch it sent. Campaigns run one at a time on the node holding the job lease, and each is also
+ * locked to that node, so the rate holds for the whole cluster.
+ */
+@Service
+public class EmailCampaignService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailCampaignService.class);
+
+    private static final String TEMPLATE = "campaignEmailTemplate";
+
+    @Autowired
+    private EmailCampaignRepository emailCampaignRepository;
+
+    @Autowired
+    private VisitorRepository visitorRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailRenderer emailRenderer;
+
+    @Autowired
+    private TenantDirectory tenantDirectory;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.campaigns.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.campaigns.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.campaigns.rate-per-second:20}")
+    private double ratePerSecond;
+
+    @Value("${app.campaigns.poll-ms:15000}")
+    private long pollMillis;
+
+    @Value("${app.campaigns.lock-ms:300000}")
+    private long lockMillis;
+
+    private long nanosPerMessage;
+
+    private volatile boolean stopping;
+
+    @PostConstruct
+    public void init() {
+        nanosPerMessage = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        jobCoordinator.schedule("email.campaigns", JobCoordinator.Mode.EXCLUSIVE,
+                JobCoordinator.fixedDelay(Duration.ofMillis(pollMillis), Duration.ofMillis(pollMillis)), this::runCampaigns);
+    }
+
+    // Campaigns without an institution reach every visitor, so only a superadmin may create them
+    @Transactional
+    public EmailCampaign createCampaign(EmailCampaign campaign, StaffUserDetails caller) {
+        requireAccess(caller, campaign.getInstitutionId());
+        if (campaign.getSubject() == null || campaign.getSubject().isBlank()) {
+            throw new IllegalArgumentException("Campaign subject cannot be empty");
+        }
+        if (campaign.getMessage() == null || campaign.getMessage().isBlank()) {
+            throw new IllegalArgumentException("Campaign message cannot be empty");
+        }
+        if (campaign.getInstitutionId() != null && tenantDirectory.institution(campaign.getInstitutionId()).isEmpty()) {
+            throw new IllegalArgumentException("Institution with ID " + campaign.getInstitutionId() + " not found");
+        }
+        campaign.setCreatedAt(LocalDateTime.now());
+        EmailCampaign saved = emailCampaignRepository.save(campaign);
+        logger.info("Created campaign {} '{}' for institution {}", saved.getId(), saved.getSubject(), saved.getInstitutionId());
+        return saved;
+    }
+
+    public Optional<EmailCampaign> getCampaign(Long id, StaffUserDetails caller) {
+        Optional<EmailCampaign> campaign = emailCampaignRepository.findById(id);
+        campaign.ifPresent(found -> requireAccess(caller, found.getInstitutionId()));
+        return campaign;
+    }
+
+    // The sending node notices at its next checkpoint and stops
+    public Optional<EmailCampaign> cancelCampaign(Long id, StaffUserDetails caller) {
+        if (getCampaign(id, caller).isEmpty()) {
+            return Optional.empty();
+        }
+        if (emailCampaignRepository.finish(id, EmailCampaign.Status.RUNNING, EmailCampaign.Status.CANCELED, LocalDateTime.now()) == 1) {
+            logger.info("Canceled campaign {}", id);
+        }
+        return emailCampaignRepository.findById(id);
+    }
+
+    public void runCampaigns() {
+        for (Long id : emailCampaignRepository.findIdsByStatus(EmailCampaign.Status.RUNNING)) {
+            if (stopping) {
+                return;
+            }
+            try {
+                run(id);
+            } catch (RuntimeException e) {
+                logger.error("Campaign {} stopped: {}", id, e.getMessage());
+            } finally {
+                emailCampaignRepository.release(id, jobCoordinator.nodeId());
+            }
+        }
+    }
+
+    private void run(Long id) {
+        String node = jobCoordinator.nodeId();
+        LocalDateTime now = LocalDateTime.now();
+        if (emailCampaignRepository.claim(id, EmailCampaign.Status.RUNNING, node, now, now.plus(Duration.ofMillis(lockMillis))) == 0) {
+            return;
+        }
+        EmailCampaign campaign = emailCampaignRepository.findById(id).orElse(null);
+        if (campaign == null) {
+            return;
+        }
+        String body = emailRenderer.render(TEMPLATE, variables(campaign));
+        // Visitors are found through their appointments, which live on the institution's shard
+        String shard = shardMap.shardOf(campaign.getInstitutionId());
+        int lastVisitorId = campaign.getLastVisitorId();
+        long nextSendAt = System.nanoTime();
+        logger.info("Sending campaign {} from visitor {}", id, lastVisitorId);
+
+        while (!stopping) {
+            int after = lastVisitorId;
+            List<CampaignRecipient> chunk = ShardContext.call(shard, () -> recipients(campaign, after));
+            if (chunk.isEmpty()) {
+                emailCampaignRepository.finish(id, EmailCampaign.Status.RUNNING, EmailCampaign.Status.COMPLETED, LocalDateTime.now());
+                logger.info("Campaign {} completed", id);
+                return;
+            }
+            for (int start = 0; start < chunk.size(); start += batchSize) {
+                nextSendAt = pace(nextSendAt);
+                if (stopping || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                List<CampaignRecipient> batch = chunk.subList(start, Math.min(start + batchSize, chunk.size()));
+                List<MessagingException> failures = emailService.sendHtmlEmails(
+                        batch.stream().map(CampaignRecipient::email).toList(), campaign.getSubject(), body);
+                int failed = (int) failures.stream().filter(Objects::nonNull).count();
+                if (failed == batch.size() && failures.stream().noneMatch(EmailCampaignService::isRecipientFailure)) {
+                    logger.warn("Mail server unavailable ({}); campaign {} resumes after visitor {} with the next run",
+                            failures.get(0).getMessage(), id, lastVisitorId);
+                    return;
+                }
+                lastVisitorId = batch.get(batch.size() - 1).visitorid();
+                LocalDateTime lockedUntil = LocalDateTime.now().plus(Duration.ofMillis(lockMillis));
+                if (emailCampaignRepository.checkpoint(id, EmailCampaign.Status.RUNNING, node, lastVisitorId,
+                        batch.size() - failed, failed, lockedUntil) == 0) {
+                    logger.info("Campaign {} was canceled or taken over by another node", id);
+                    return;
+                }
+                meterRegistry.counter("app.email.campaign", "outcome", "sent").increment(batch.size() - failed);
+                meterRegistry.counter("app.email.campaign", "outcome", "failed").increment(failed);
+                nextSendAt += batch.size() * nanosPerMessage;
+            }
+        }
+    }
+
+    private List<CampaignRecipient> recipients(EmailCampaign campaign, int afterVisitorId) {
+        PageRequest chunk = PageRequest.of(0, chunkSize);
+        return campaign.getInstitutionId() == null
+                ? visitorRepository.findCampaignRecipientsAfter(afterVisitorId, chunk)
+                : visitorRepository.findInstitutionCampaignRecipientsAfter(afterVisitorId, campaign.getInstitutionId(), chunk);
+    }
+
+    // Waits until the rate allows the next batch; a slow mail server does not build up credit
+    private long pace(long nextSendAt) {
+        long wait = nextSendAt - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return Math.max(nextSendAt, System.nanoTime());
+    }
+
+    private Map<String, Object> variables(EmailCampaign campaign) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("subject", campaign.getSubject());
+        variables.put("message", campaign.getMessage());
+        variables.put("institutionName", tenantDirectory.institution(campaign.getInstitutionId()).map(Institution::getName).orElse(null));
+        return variables;
+    }
+
+    private static void requireAccess(StaffUserDetails caller, Long institutionId) {
+        if (caller == null || !caller.canManageInstitution(institutionId)) {
+            throw new AccessDeniedException(institutionId == null
+                    ? "Only a superadmin can manage campaigns for all institutions"
+                    : "Not allowed to manage campaigns of institution " + institutionId);
+        }
+    }
+
+    // Failures caused by one address rather than by the mail server
+    private static boolean isRecipientFailure(MessagingException e) {
+        return e instanceof SendFailedException || e instanceof AddressException;
+    }
+
+    // Batches not sent yet are resumed from the checkpoint after restart
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+    }
+}
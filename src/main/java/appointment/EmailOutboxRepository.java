@@ -0,0 +1,57 @@
+package appointment;
+
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    @Query("SELECT e.id FROM EmailOutbox e WHERE e.status = :pending " +
+            "AND e.nextAttemptAt <= :now AND (e.lockedUntil IS NULL OR e.lockedUntil < :now) ORDER BY e.nextAttemptAt")
+    List<Long> findDueIds(@Param("pending") EmailOutbox.Status pending,
+                          @Param("now") LocalDateTime now,
+                          Pageable pageable);
+
+    // Takes the email for one worker; 0 rows means it is sent, dead or being sent elsewhere
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox e SET e.lockedBy = :worker, e.lockedUntil = :lockedUntil " +
+            "WHERE e.id = :id AND e.status = :pending AND (e.lockedUntil IS NULL OR e.lockedUntil < :now)")
+    int claim(@Param("id") Long id,
+              @Param("pending") EmailOutbox.Status pending,
+              @Param("worker") String worker,
+              @Param("now") LocalDateTime now,
+              @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    // The variables may hold secrets such as temporary passwords, so they are not kept after sending
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox e SET e.status = :sent, e.sentAt = :sentAt, e.attempts = e.attempts + 1, " +
+            "e.variables = '{}', e.lastError = NULL, e.lockedBy = NULL, e.lockedUntil = NULL WHERE e.id = :id")
+    int markSent(@Param("id") Long id,
+                 @Param("sent") EmailOutbox.Status sent,
+                 @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, " +
+            "e.lastError = :lastError, e.lockedBy = NULL, e.lockedUntil = NULL WHERE e.id = :id")
+    int markFailed(@Param("id") Long id,
+                   @Param("status") EmailOutbox.Status status,
+                   @Param("attempts") int attempts,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("lastError") String lastError);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EmailOutbox e WHERE e.status = :sent AND e.sentAt < :before")
+    int deleteSentBefore(@Param("sent") EmailOutbox.Status sent, @Param("before") LocalDateTime before);
+}
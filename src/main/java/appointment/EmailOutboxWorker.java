@@ -0,0 +1,300 @@
+package appointment;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the emails in the outbox on a bounded pool of workers. An email is handed to the workers
+ * as soon as the transaction that queued it commits, and a poll picks up whatever that missed:
+ * entries queued while the workers were full, retries that are due and entries of instances that
+ * stopped. Workers take waiting entries in batches of app.email.outbox.batch-size, so a wave of
+ * reminders goes out over a few pooled SMTP connections instead of one connection per email.
+ * Each entry is claimed with a conditional update before sending, so it goes out from one worker
+ * only, and no database connection is held while the mail server is talked to. Failed sends are
+ * retried with exponential backoff until app.email.outbox.max-attempts, then left as DEAD. On
+ * shutdown the workers stop taking work and drain what they already have.
+ */
+@Component
+public class EmailOutboxWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxWorker.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.email.outbox.workers:4}")
+    private int workers;
+
+    @Value("${app.email.outbox.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${app.email.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.email.outbox.poll-ms:10000}")
+    private long pollMillis;
+
+    @Value("${app.email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.email.outbox.backoff-ms:30000}")
+    private long backoffMillis;
+
+    @Value("${app.email.outbox.max-backoff-ms:3600000}")
+    private long maxBackoffMillis;
+
+    @Value("${app.email.outbox.lock-ms:300000}")
+    private long lockMillis;
+
+    @Value("${app.email.outbox.drain-seconds:30}")
+    private int drainSeconds;
+
+    @Value("${app.email.outbox.retention-days:7}")
+    private int retentionDays;
+
+    private ThreadPoolTaskExecutor pool;
+
+    private TransactionTemplate transaction;
+
+    // Entries handed to the workers and not finished yet, so a poll does not queue them twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    private record Pending(String shard, Long id) {
+
+        String key() {
+            return shard + ":" + id;
+        }
+    }
+
+    private volatile boolean draining;
+
+    @PostConstruct
+    public void init() {
+        pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(workers);
+        pool.setMaxPoolSize(workers);
+        pool.setQueueCapacity(queueCapacity);
+        pool.setThreadNamePrefix("email-");
+        pool.setWaitForTasksToCompleteOnShutdown(true);
+        pool.setAwaitTerminationSeconds(drainSeconds);
+        pool.initialize();
+        transaction = new TransactionTemplate(transactionManager);
+
+        jobCoordinator.schedule("email.outbox.poll", JobCoordinator.Mode.EVERY_NODE,
+                JobCoordinator.fixedDelay(Duration.ofMillis(pollMillis), Duration.ofMillis(pollMillis)), this::poll);
+        jobCoordinator.schedule("email.outbox.prune", JobCoordinator.Mode.EXCLUSIVE,
+                JobCoordinator.fixedDelay(Duration.ofHours(1), Duration.ofHours(1)), this::prune);
+    }
+
+    // After commit, or right away when the email was queued outside a transaction
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQueued(EmailQueuedEvent event) {
+        submit(event.shard(), event.outboxId());
+    }
+
+    public void poll() {
+        LocalDateTime now = LocalDateTime.now();
+        for (String shard : shardMap.allShards()) {
+            List<Long> due = ShardContext.call(shard, () ->
+                    emailOutboxRepository.findDueIds(EmailOutbox.Status.PENDING, now, PageRequest.of(0, queueCapacity)));
+            for (Long id : due) {
+                if (!submit(shard, id)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public void prune() {
+        for (String shard : shardMap.allShards()) {
+            int deleted = ShardContext.call(shard, () -> emailOutboxRepository.deleteSentBefore(
+                    EmailOutbox.Status.SENT, LocalDateTime.now().minusDays(retentionDays)));
+            if (deleted > 0) {
+                logger.info("Pruned {} sent emails from the outbox of shard {}", deleted, shard);
+            }
+        }
+    }
+
+    // False when the workers cannot take more work; the entry stays in the outbox for a later poll
+    private boolean submit(String shard, Long id) {
+        if (draining) {
+            return false;
+        }
+        Pending entry = new Pending(shard, id);
+        if (!inFlight.add(entry.key())) {
+            return true;
+        }
+        if (pendingCount.incrementAndGet() > queueCapacity) {
+            pendingCount.decrementAndGet();
+            inFlight.remove(entry.key());
+            logger.debug("Email workers are full; outbox entry {} waits for the next poll", id);
+            return false;
+        }
+        pending.add(entry);
+        startWorker();
+        return true;
+    }
+
+    // Starts another worker unless all of them are already busy
+    private void startWorker() {
+        int active;
+        do {
+            active = activeWorkers.get();
+            if (active >= workers) {
+                return;
+            }
+        } while (!activeWorkers.compareAndSet(active, active + 1));
+        try {
+            pool.execute(this::work);
+        } catch (TaskRejectedException e) {
+            // Only after shutdown; whatever is left keeps its outbox row and is sent after restart
+            activeWorkers.decrementAndGet();
+        }
+    }
+
+    private void work() {
+        try {
+            List<Pending> batch;
+            while (!(batch = takeBatch()).isEmpty()) {
+                Map<String, List<Long>> byShard = new LinkedHashMap<>();
+                for (Pending entry : batch) {
+                    byShard.computeIfAbsent(entry.shard(), shard -> new ArrayList<>()).add(entry.id());
+                }
+                try {
+                    byShard.forEach((shard, ids) -> ShardContext.run(shard, () -> process(ids)));
+                } catch (RuntimeException e) {
+                    // Claimed entries are picked up again by the poll once their lock runs out
+                    logger.error("Failed to process a batch of {} outbox entries: {}", batch.size(), e.getMessage());
+                } finally {
+                    batch.forEach(entry -> inFlight.remove(entry.key()));
+                }
+            }
+        } finally {
+            activeWorkers.decrementAndGet();
+            // An entry queued just as this worker gave up would otherwise wait for the next poll
+            if (!pending.isEmpty()) {
+                startWorker();
+            }
+        }
+    }
+
+    private List<Pending> takeBatch() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        Pending entry;
+        while (batch.size() < batchSize && (entry = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    private void process(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lockedUntil = now.plus(Duration.ofMillis(lockMillis));
+        List<EmailOutbox> emails = transaction.execute(status -> {
+            List<EmailOutbox> claimed = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                if (emailOutboxRepository.claim(id, EmailOutbox.Status.PENDING, jobCoordinator.nodeId(), now, lockedUntil) == 1) {
+                    emailOutboxRepository.findById(id).ifPresent(claimed::add);
+                }
+            }
+            return claimed;
+        });
+        if (emails == null || emails.isEmpty()) {
+            return;
+        }
+        List<Exception> failures;
+        try {
+            failures = emailService.deliverAll(emails);
+        } catch (RuntimeException e) {
+            failures = Collections.nCopies(emails.size(), e);
+        }
+        int sent = 0;
+        for (int i = 0; i < emails.size(); i++) {
+            EmailOutbox email = emails.get(i);
+            if (failures.get(i) == null) {
+                emailOutboxRepository.markSent(email.getId(), EmailOutbox.Status.SENT, LocalDateTime.now());
+                meterRegistry.counter("app.email.outbox", "outcome", "sent").increment();
+                sent++;
+            } else {
+                fail(email, failures.get(i));
+            }
+        }
+        logger.info("Sent {} of {} emails from the outbox", sent, emails.size());
+    }
+
+    private void fail(EmailOutbox email, Exception e) {
+        int attempts = email.getAttempts() + 1;
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        if (attempts >= maxAttempts) {
+            emailOutboxRepository.markFailed(email.getId(), EmailOutbox.Status.DEAD, attempts, LocalDateTime.now(), error);
+            meterRegistry.counter("app.email.outbox", "outcome", "dead").increment();
+            logger.error("Giving up on email '{}' to {} after {} attempts: {}", email.getSubject(), email.getRecipient(), attempts, error);
+            return;
+        }
+        long delay = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempts - 1, 20));
+        emailOutboxRepository.markFailed(email.getId(), EmailOutbox.Status.PENDING, attempts, LocalDateTime.now().plus(Duration.ofMillis(delay)), error);
+        meterRegistry.counter("app.email.outbox", "outcome", "retry").increment();
+        logger.warn("Failed to send email '{}' to {} (attempt {}), retrying in {} ms: {}",
+                email.getSubject(), email.getRecipient(), attempts, delay, error);
+    }
+
+    // Entries not started within the drain time keep their outbox row and are sent after restart
+    @PreDestroy
+    public void drain() {
+        draining = true;
+        logger.info("Draining email workers: {} active, {} emails queued", activeWorkers.get(), pendingCount.get());
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,5 @@
+package appointment;
+
+// Published when an email is written to the outbox; the shard says where the row lives
+public record EmailQueuedEvent(Long outboxId, String shard) {
+}
@@ -0,0 +1,121 @@
+package appointment;
+
+import jakarta.activation.DataHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.PreencodedMimeBodyPart;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns templates into ready-to-send MIME messages. The inline images are read and base64
+ * encoded once at startup and attached to every message as pre-encoded parts, and the email
+ * templates are parsed at startup so the first email of each kind does not pay for it.
+ */
+@Component
+public class EmailRenderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailRenderer.class);
+
+    static final List<String> TEMPLATES = List.of(
+            "appointmentReminderTemplate", "bookingConfirmationEmailTemplate", "campaignEmailTemplate", "cancelEmailTemplate",
+            "checkoutEmailTemplate", "passwordResetEmailTemplate", "physiotherapistDigestTemplate",
+            "physiotherapistEmailTemplate", "rescheduleEmailTemplate", "welcomeEmailTemplate");
+
+    // Content id used by the templates, and where the image lives
+    private static final Map<String, String> INLINE_IMAGES = Map.of(
+            "winsFitLogo", "classpath:static/Images/WinsFit Logo.png",
+            "winsFitRobot", "classpath:static/Images/winsFit Robot.png");
+
+    record InlineImage(String contentId, String contentType, byte[] base64) {
+    }
+
+    @Autowired
+    private TemplateEngine templateEngine;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    private List<InlineImage> inlineImages = List.of();
+
+    @PostConstruct
+    public void init() {
+        List<InlineImage> images = new ArrayList<>();
+        INLINE_IMAGES.forEach((contentId, location) -> {
+            Resource resource = resourceLoader.getResource(location);
+            if (!resource.exists()) {
+                logger.warn("Inline email image not found at: {}", location);
+                return;
+            }
+            try (InputStream in = resource.getInputStream()) {
+                String encoded = Base64.getMimeEncoder().encodeToString(in.readAllBytes());
+                images.add(new InlineImage(contentId, "image/png", encoded.getBytes(StandardCharsets.US_ASCII)));
+            } catch (IOException e) {
+                logger.error("Error loading email image {}: {}", location, e.getMessage());
+            }
+        });
+        inlineImages = List.copyOf(images);
+
+        // Parsing happens before processing and is cached by the resolver, so an expression failing
+        // on the empty context still leaves the parsed template behind
+        for (String template : TEMPLATES) {
+            try {
+                templateEngine.process(template, new Context());
+            } catch (RuntimeException e) {
+                logger.debug("Warm-up render of {} failed: {}", template, e.getMessage());
+            }
+        }
+        logger.info("Email renderer ready: {} inline images cached, {} templates parsed", inlineImages.size(), TEMPLATES.size());
+    }
+
+    public String render(String template, Map<String, Object> variables) {
+        Context context = new Context();
+        context.setVariables(variables);
+        return templateEngine.process(template, context);
+    }
+
+    public MimeMessage createMessage(String to, String subject, String htmlBody) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setTo(to);
+        helper.setSubject(subject);
+        helper.setText(htmlBody, true);
+        for (InlineImage image : inlineImages) {
+            helper.getMimeMultipart().addBodyPart(inlinePart(image));
+        }
+        return message;
+    }
+
+    // A fresh part per message over the shared encoded bytes; parts cannot be shared between messages
+    private static MimeBodyPart inlinePart(InlineImage image) throws MessagingException {
+        MimeBodyPart part = new PreencodedMimeBodyPart("base64");
+        part.setDataHandler(new DataHandler(new ByteArrayDataSource(image.base64(), image.contentType())));
+        part.setDisposition(MimeBodyPart.INLINE);
+        part.setHeader("Content-ID", "<" + image.contentId() + ">");
+        // Declared up front so saveChanges does not scan the data to pick an encoding
+        part.setHeader("Content-Transfer-Encoding", "base64");
+        return part;
+    }
+}
@@ -1,191 +1,240 @@
 package appointment;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.exceptions.TemplateInputException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the application's emails. The send methods write the email to the outbox as part of
+ * the caller's transaction and return; EmailOutboxWorker renders and sends it once the
+ * transaction has committed, so requests no longer wait on the mail server.
+ */
 @Service
 public class EmailService {
 
     private final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
+    private static final TypeReference<Map<String, Object>> VARIABLES_TYPE = new TypeReference<>() {
+    };
+
+    @Autowired
+    private SmtpTransportPool smtpTransportPool;
+
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailRenderer emailRenderer;
 
     @Autowired
-    private TemplateEngine templateEngine;
+    private EmailOutboxRepository emailOutboxRepository;
 
     @Autowired
-    private ResourceLoader resourceLoader;
+    private ObjectMapper objectMapper;
 
-    public void sendEmailFromTemplate(String to, String subject, String templateName, Context context) {
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public void queueEmailFromTemplate(String to, String subject, String templateName, Map<String, Object> variables) {
+        String json;
         try {
-            logger.info("Processing Thymeleaf template: {}", templateName);
-            String body = templateEngine.process(templateName, context);
-            sendHtmlEmail(to, subject, body);
-            logger.info("Email sent successfully to: {}", to);
-        } catch (TemplateInputException e) {
-            logger.error("Error parsing Thymeleaf template '{}': {}", templateName, e.getMessage());
-        } catch (MessagingException e) {
-            logger.error("Failed to send email '{}' to {}: {}", subject, to, e.getMessage());
-        } catch (Exception e) {
-            logger.error("Unexpected error while sending email '{}': {}", subject, e.getMessage());
+            json = objectMapper.writeValueAsString(variables);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Email variables for template " + templateName + " cannot be stored: " + e.getMessage());
         }
+        EmailOutbox email = emailOutboxRepository.save(new EmailOutbox(to, subject, templateName, json));
+        eventPublisher.publishEvent(new EmailQueuedEvent(email.getId(), ShardContext.currentOrDefault()));
+        logger.debug("Queued email '{}' to {} as outbox entry {}", subject, to, email.getId());
     }
 
-    public void sendHtmlEmail(String to, String subject, String htmlBody) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true);
-        helper.setTo(to);
-        helper.setSubject(subject);
-        helper.setText(htmlBody, true);
-
-        try {
-            // Load WinsFit Logo
-            Resource logoResource = resourceLoader.getResource("classpath:static/Images/WinsFit Logo.png");
-            if (logoResource.exists()) {
-                helper.addInline("winsFitLogo", logoResource);
-            } else {
-                logger.warn("WinsFit Logo not found at: classpath:static/Images/WinsFit Logo.png");
+    /**
+     * Renders outbox entries and sends them over one pooled SMTP connection. The result has one
+     * entry per email: null when it was sent, otherwise why not, so the caller can retry just those.
+     */
+    public List<Exception> deliverAll(List<EmailOutbox> emails) {
+        List<Exception> failures = new ArrayList<>(Collections.nCopies(emails.size(), null));
+        List<MimeMessage> messages = new ArrayList<>(emails.size());
+        List<Integer> positions = new ArrayList<>(emails.size());
+        for (int i = 0; i < emails.size(); i++) {
+            EmailOutbox email = emails.get(i);
+            try {
+                String body = emailRenderer.render(email.getTemplateName(), objectMapper.readValue(email.getVariables(), VARIABLES_TYPE));
+                messages.add(emailRenderer.createMessage(email.getRecipient(), email.getSubject(), body));
+                positions.add(i);
+            } catch (JsonProcessingException | MessagingException | RuntimeException e) {
+                failures.set(i, e);
             }
+        }
+        List<MessagingException> sendFailures = smtpTransportPool.sendAll(messages);
+        for (int k = 0; k < positions.size(); k++) {
+            failures.set(positions.get(k), sendFailures.get(k));
+        }
+        return failures;
+    }
+
+    public void sendHtmlEmail(String to, String subject, String htmlBody) throws MessagingException {
+        smtpTransportPool.send(emailRenderer.createMessage(to, subject, htmlBody));
+    }
 
-            // Load WinsFit Robot
-            Resource robotResource = resourceLoader.getResource("classpath:static/Images/winsFit Robot.png");
-            if (robotResource.exists()) {
-                helper.addInline("winsFitRobot", robotResource);
-            } else {
-                logger.warn("WinsFit Robot not found at: classpath:static/Images/winsFit Robot.png");
+    // Sends one rendered body to many recipients over one pooled connection; null entries were sent
+    public List<MessagingException> sendHtmlEmails(List<String> recipients, String subject, String htmlBody) {
+        List<MessagingException> failures = new ArrayList<>(Collections.nCopies(recipients.size(), null));
+        List<MimeMessage> messages = new ArrayList<>(recipients.size());
+        List<Integer> positions = new ArrayList<>(recipients.size());
+        for (int i = 0; i < recipients.size(); i++) {
+            try {
+                messages.add(emailRenderer.createMessage(recipients.get(i), subject, htmlBody));
+                positions.add(i);
+            } catch (MessagingException e) {
+                failures.set(i, e);
             }
-//yes it works
-        } catch (Exception e) {
-            logger.error("Error loading email images: {}", e.getMessage());
         }
-
-        mailSender.send(message);
+        List<MessagingException> sendFailures = smtpTransportPool.sendAll(messages);
+        for (int k = 0; k < positions.size(); k++) {
+            failures.set(positions.get(k), sendFailures.get(k));
+        }
+        return failures;
     }
 
     public void sendRescheduledAppointmentEmail(Appointment appointment) {
-        Context context = new Context();
-        context.setVariable("visitorName", appointment.getVisitor().getVisitorname());
-        context.setVariable("date", appointment.getDate().toString());
-        context.setVariable("time", appointment.getTime().toString());
-        context.setVariable("passcode", appointment.getPasscode());
-        context.setVariable("appointmentId", appointment.getAppointmentid());
-        context.setVariable("department", appointment.getDepartment());
-        context.setVariable("institutionName", appointment.getInstitution().getName());
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("visitorName", appointment.getVisitor().getVisitorname());
+        variables.put("date", appointment.getDate().toString());
+        variables.put("time", appointment.getTime().toString());
+        variables.put("passcode", appointment.getPasscode());
+        variables.put("appointmentId", appointment.getAppointmentid());
+        variables.put("department", appointment.getDepartment());
+        variables.put("institutionName", appointment.getInstitution().getName());
 
         if (appointment.getMeetingType() == MeetingType.VIRTUAL) {
-            context.setVariable("videoMeetingLink", appointment.getVideoMeetingLink());
+            variables.put("videoMeetingLink", appointment.getVideoMeetingLink());
         } else {
-            context.setVariable("videoMeetingLink", null);
+            variables.put("videoMeetingLink", null);
         }
-        sendEmailFromTemplate(appointment.getVisitor().getEmail(), "Appointment Rescheduled Notification", "rescheduleEmailTemplate", context);
+        queueEmailFromTemplate(appointment.getVisitor().getEmail(), "Appointment Rescheduled Notification", "rescheduleEmailTemplate", variables);
     }
 
     public void sendCancellationEmail(Appointment appointment) {
-        Context context = new Context();
-        context.setVariable("visitorName", appointment.getVisitor().getVisitorname());
-        context.setVariable("date", appointment.getDate().toString());
-        context.setVariable("time", appointment.getTime().toString());
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("visitorName", appointment.getVisitor().getVisitorname());
+        variables.put("date", appointment.getDate().toString());
+        variables.put("time", appointment.getTime().toString());
 
-        sendEmailFromTemplate(appointment.getVisitor().getEmail(), "Appointment Cancellation Notification", "cancelEmailTemplate", context);
+        queueEmailFromTemplate(appointment.getVisitor().getEmail(), "Appointment Cancellation Notification", "cancelEmailTemplate", variables);
     }
 
     public void sendCheckoutConfirmationEmail(Appointment appointment) {
-        Context context = new Context();
-        context.setVariable("visitorName", appointment.getVisitor().getVisitorname());
-        context.setVariable("date", appointment.getDate().toString());
-        context.setVariable("time", appointment.getTime().toString());
-        context.setVariable("institutionName", appointment.getInstitution().getName());
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("visitorName", appointment.getVisitor().getVisitorname());
+        variables.put("date", appointment.getDate().toString());
+        variables.put("time", appointment.getTime().toString());
+        variables.put("institutionName", appointment.getInstitution().getName());
 
-        sendEmailFromTemplate(appointment.getVisitor().getEmail(), "Checkout Confirmation", "checkoutEmailTemplate", context);
+        queueEmailFromTemplate(appointment.getVisitor().getEmail(), "Checkout Confirmation", "checkoutEmailTemplate", variables);
     }
 
     public void sendBookingConfirmationEmail(Appointment appointment) {
-        Context context = new Context();
-        context.setVariable("visitorName", appointment.getVisitor().getVisitorname());
-        context.setVariable("date", appointment.getDate().toString());
-        context.setVariable("time", appointment.getTime().toString());
-        context.setVariable("department", appointment.getDepartment());
-        context.setVariable("institutionName", appointment.getInstitution().getName());
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("visitorName", appointment.getVisitor().getVisitorname());
+        variables.put("date", appointment.getDate().toString());
+        variables.put("time", appointment.getTime().toString());
+        variables.put("department", appointment.getDepartment());
+        variables.put("institutionName", appointment.getInstitution().getName());
 
         if (appointment.getMeetingType() == MeetingType.VIRTUAL) {
-            context.setVariable("videoMeetingLink", appointment.getVideoMeetingLink());
+            variables.put("videoMeetingLink", appointment.getVideoMeetingLink());
         } else {
-            context.setVariable("videoMeetingLink", null);
+            variables.put("videoMeetingLink", null);
         }
 
-        sendEmailFromTemplate(appointment.getVisitor().getEmail(), "Appointment Booking Confirmation", "bookingConfirmationEmailTemplate", context);
-
-        if (appointment.getMeetingType() == MeetingType.VIRTUAL && appointment.getUser() != null) {
-            sendPhysiotherapistNotification(appointment);
-        }
+        queueEmailFromTemplate(appointment.getVisitor().getEmail(), "Appointment Booking Confirmation", "bookingConfirmationEmailTemplate", variables);
     }
 
     public void sendPhysiotherapistNotification(Appointment appointment) {
-        Context context = new Context();
-        context.setVariable("physiotherapistName", appointment.getUser().getUsername());
-        context.setVariable("visitorName", appointment.getVisitor().getVisitorname());
-        context.setVariable("date", appointment.getDate().toString());
-        context.setVariable("time", appointment.getTime().toString());
-        context.setVariable("meetingLink", appointment.getVideoMeetingLink());
-
-        sendEmailFromTemplate(
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("physiotherapistName", appointment.getUser().getUsername());
+        variables.put("visitorName", appointment.getVisitor().getVisitorname());
+        variables.put("date", appointment.getDate().toString());
+        variables.put("time", appointment.getTime().toString());
+        variables.put("meetingLink", appointment.getVideoMeetingLink());
+
+        queueEmailFromTemplate(
                 appointment.getUser().getEmail(),
                 "Virtual Appointment Assigned",
                 "physiotherapistEmailTemplate",
-                context
+                variables
         );
     }
 
     public void sendPasswordResetEmail(String visitorEmail, String visitorName, String temporaryPassword) {
-        Context context = new Context();
-        context.setVariable("visitorName", visitorName);
-        context.setVariable("temporaryPassword", temporaryPassword);
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("visitorName", visitorName);
+        variables.put("temporaryPassword", temporaryPassword);
 
-        sendEmailFromTemplate(visitorEmail, "Password Reset", "passwordResetEmailTemplate", context);
+        queueEmailFromTemplate(visitorEmail, "Password Reset", "passwordResetEmailTemplate", variables);
     }
 
     public void sendWelcomeEmail(Visitor visitor, String visitorId) {
-        Context context = new Context();
-        context.setVariable("visitorName", visitor.getVisitorname());
-        context.setVariable("visitorId", visitorId);
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("visitorName", visitor.getVisitorname());
+        variables.put("visitorId", visitorId);
 
-        sendEmailFromTemplate(visitor.getEmail(), "Welcome to Our Service", "welcomeEmailTemplate", context);
+        queueEmailFromTemplate(visitor.getEmail(), "Welcome to Our Service", "welcomeEmailTemplate", variables);
     }
 
     public void sendReminderEmail(Appointment appointment) {
-        Context context = new Context();
-        context.setVariable("visitorName", appointment.getVisitor().getVisitorname());
-        context.setVariable("date", appointment.getDate().toString());
-        context.setVariable("time", appointment.getTime().toString());
-        context.setVariable("meetingLink", appointment.getVideoMeetingLink());
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("visitorName", appointment.getVisitor().getVisitorname());
+        variables.put("date", appointment.getDate().toString());
+        variables.put("time", appointment.getTime().toString());
+        variables.put("meetingLink", appointment.getVideoMeetingLink());
 
-        sendEmailFromTemplate(
+        queueEmailFromTemplate(
                 appointment.getVisitor().getEmail(),
                 "Upcoming Appointment Reminder",
                 "appointmentReminderTemplate",
-                context
+                variables
         );
+    }
 
-        if (appointment.getUser() != null) {
-            context.setVariable("physiotherapistName", appointment.getUser().getUsername());
-            sendEmailFromTemplate(
-                    appointment.getUser().getEmail(),
-                    "Upcoming Appointment Reminder",
-                    "appointmentReminderTemplate",
-                    context
-            );
-        }
+    public void sendPhysiotherapistReminder(Appointment appointment) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("physiotherapistName", appointment.getUser().getUsername());
+        variables.put("visitorName", appointment.getVisitor().getVisitorname());
+        variables.put("date", appointment.getDate().toString());
+        variables.put("time", appointment.getTime().toString());
+        variables.put("meetingLink", appointment.getVideoMeetingLink());
+
+        queueEmailFromTemplate(
+                appointment.getUser().getEmail(),
+                "Upcoming Appointment Reminder",
+                "appointmentReminderTemplate",
+                variables
+        );
+    }
+
+    // One summary of appointment changes and upcoming appointments; either list may be empty
+    public void sendPhysiotherapistDigest(Users physiotherapist, List<Map<String, Object>> changes, List<Map<String, Object>> agenda) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("physiotherapistName", physiotherapist.getUsername());
+        variables.put("changes", changes);
+        variables.put("agenda", agenda);
+
+        queueEmailFromTemplate(
+                physiotherapist.getEmail(),
+                changes.isEmpty() ? "Your Upcoming Appointments" : "Your Appointment Digest",
+                "physiotherapistDigestTemplate",
+                variables
+        );
     }
 }
\ No newline at end of file
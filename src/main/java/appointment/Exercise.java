@@ -1,10 +1,13 @@
 package appointment;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.io.File;
 import java.util.Objects;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Exercise {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -2,6 +2,7 @@ package appointment;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -10,9 +11,11 @@ import java.util.Map;
 @RequestMapping("/api/exercises")
 public class ExerciseController {
     private final ExerciseService exerciseService;
+    private final NdjsonStreamer ndjsonStreamer;
 
-    public ExerciseController(ExerciseService exerciseService) {
+    public ExerciseController(ExerciseService exerciseService, NdjsonStreamer ndjsonStreamer) {
         this.exerciseService = exerciseService;
+        this.ndjsonStreamer = ndjsonStreamer;
     }
 
     @GetMapping("/plan")
@@ -58,6 +61,18 @@ public class ExerciseController {
         return ResponseEntity.ok(exerciseService.getAllExercises());
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<KeysetPage<Exercise>> getExercisesPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(exerciseService.getExercisesPage(after, size));
+    }
+
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamExercises() {
+        return ndjsonStreamer.stream(exerciseService::streamExercises);
+    }
+
     @PostMapping
     public ResponseEntity<Exercise> addExercise(@RequestBody Exercise exercise) {
         return ResponseEntity.ok(exerciseService.saveExercise(exercise));
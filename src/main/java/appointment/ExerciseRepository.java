@@ -1,12 +1,28 @@
 package appointment;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ExerciseRepository extends JpaRepository<Exercise, Long> {
+    // Exercise lookups are reference data; cacheable when the prod profile enables the query cache
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Exercise> findByGenderAndExperienceLevel(String gender, String experienceLevel);
 
     // Additional query to find exercises by gender, experience level, and name containing a keyword
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Exercise> findByGenderAndExperienceLevelAndNameContainingIgnoreCase(
             String gender, String experienceLevel, String keyword);
-}
\ No newline at end of file
+
+    // Keyset pagination and streaming for the list endpoint
+    List<Exercise> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingHints.FETCH_SIZE))
+    @Query("SELECT e FROM Exercise e ORDER BY e.id")
+    Stream<Exercise> streamAll();
+}
@@ -15,6 +15,7 @@ import java.util.*;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ExerciseService {
@@ -26,27 +27,51 @@ public class ExerciseService {
     @Autowired
     private ResourceLoader resourceLoader;
 
+    @Autowired
+    private KeysetPagination keysetPagination;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
     public ExerciseService(ExerciseRepository exerciseRepository) {
         this.exerciseRepository = exerciseRepository;
     }
 
     public Exercise saveExercise(Exercise exercise) {
-        return exerciseRepository.save(exercise);
+        Exercise saved = exerciseRepository.save(exercise);
+        invalidationBus.publish(CacheInvalidation.of(CacheInvalidation.Type.EXERCISE));
+        return saved;
     }
 
+    @ReadOnlyTransactional
     public List<Exercise> getAllExercises() {
         return exerciseRepository.findAll();
     }
 
+    @ReadOnlyTransactional
+    public KeysetPage<Exercise> getExercisesPage(String after, Integer size) {
+        int pageSize = keysetPagination.pageSize(size);
+        List<Exercise> rows = exerciseRepository.findByIdGreaterThanOrderByIdAsc(KeysetPagination.decodeId(after), keysetPagination.probe(pageSize));
+        return keysetPagination.page(rows, pageSize, row -> KeysetPagination.encode(row.getId()));
+    }
+
+    // Must be consumed inside a transaction; see NdjsonStreamer
+    public Stream<Exercise> streamExercises() {
+        return exerciseRepository.streamAll();
+    }
+
+    @ReadOnlyTransactional
     public List<Exercise> getExercisesForVisitor(String gender, String experienceLevel) {
         return exerciseRepository.findByGenderAndExperienceLevel(gender, experienceLevel);
     }
 
+    @ReadOnlyTransactional
     public List<Exercise> searchExercises(String gender, String experienceLevel, String keyword) {
         return exerciseRepository.findByGenderAndExperienceLevelAndNameContainingIgnoreCase(
                 gender, experienceLevel, keyword);
     }
 
+    @ReadOnlyTransactional
     public Map<String, List<Exercise>> assignExercises(String gender, String experienceLevel) {
         List<Exercise> matchingExercises = exerciseRepository.findByGenderAndExperienceLevel(gender, experienceLevel);
 
@@ -78,6 +103,7 @@ public class ExerciseService {
         return weeklyPlan;
     }
 
+    @ReadOnlyTransactional
     public List<Map<String, Object>> validateAllVideos() {
         List<Exercise> exercises = exerciseRepository.findAll();
         List<Map<String, Object>> results = new ArrayList<>();
@@ -2,7 +2,9 @@ package appointment;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -76,6 +78,45 @@ public class GlobalExceptionHandler {
         );
     }
 
+    // Handle concurrent modification of an appointment
+    @ExceptionHandler({AppointmentConflictException.class, OptimisticLockingFailureException.class})
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ResponseBody
+    public Map<String, Object> handleConflict(RuntimeException e) {
+        logger.warn("Concurrent update conflict: {}", e.getMessage());
+        return Map.of(
+                "status", HttpStatus.CONFLICT.value(),
+                "error", "Conflict",
+                "message", "The appointment was changed by someone else. Please reload and try again."
+        );
+    }
+
+    // Handle a signed-in caller acting outside their role or institution
+    @ExceptionHandler(AccessDeniedException.class)
+    @ResponseStatus(HttpStatus.FORBIDDEN)
+    @ResponseBody
+    public Map<String, Object> handleAccessDeniedException(AccessDeniedException e) {
+        logger.warn("Access denied: {}", e.getMessage());
+        return Map.of(
+                "status", HttpStatus.FORBIDDEN.value(),
+                "error", "Forbidden",
+                "message", e.getMessage()
+        );
+    }
+
+    // Handle InvalidCursorException
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public Map<String, Object> handleInvalidCursorException(InvalidCursorException e) {
+        logger.warn("Invalid page cursor: {}", e.getMessage());
+        return Map.of(
+                "status", HttpStatus.BAD_REQUEST.value(),
+                "error", "Bad Request",
+                "message", e.getMessage()
+        );
+    }
+
     // Handle generic exceptions
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
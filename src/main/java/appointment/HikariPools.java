@@ -0,0 +1,27 @@
+package appointment;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+// Builds extra connection pools (replicas, shards) with the same spring.datasource.hikari.* settings as the primary
+final class HikariPools {
+
+    private HikariPools() {
+    }
+
+    static HikariDataSource create(DataSourceProperties properties, Environment environment, String name,
+                                   String url, String username, String password) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(name);
+        return dataSource;
+    }
+}
@@ -15,15 +15,15 @@ public class InstitutionController {
     private InstitutionService institutionService;
 
     @GetMapping
-    public List<Institution> getAllInstitutions() {
+    public List<InstitutionView> getAllInstitutions() {
         return institutionService.getAllInstitutions();
     }
 
 
 
     @GetMapping("/{id}")
-    public ResponseEntity<Institution> getInstitutionById(@PathVariable Long id) {
-        return institutionService.getInstitutionById(id)
+    public ResponseEntity<InstitutionView> getInstitutionById(@PathVariable Long id) {
+        return institutionService.getInstitutionViewById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -1,8 +1,22 @@
 package appointment;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface InstitutionRepository extends JpaRepository<Institution, Long> {
+
+    String VIEW_SELECT = "SELECT new appointment.InstitutionView(i.id, i.name, i.address, i.contactNumber, i.email, " +
+            "i.website, i.registrationNumber, i.logoFilename) FROM Institution i ";
+
+    @Query(VIEW_SELECT + "ORDER BY i.id")
+    List<InstitutionView> findAllViews();
+
+    @Query(VIEW_SELECT + "WHERE i.id = :id")
+    Optional<InstitutionView> findViewById(@Param("id") Long id);
 }
@@ -16,8 +16,18 @@ public class InstitutionService {
     @Autowired
     private InstitutionRepository institutionRepository;
 
-    public List<Institution> getAllInstitutions() {
-        return institutionRepository.findAll();
+    @Autowired
+    private TenantDirectory tenantDirectory;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    public List<InstitutionView> getAllInstitutions() {
+        return institutionRepository.findAllViews();
+    }
+
+    public Optional<InstitutionView> getInstitutionViewById(Long id) {
+        return institutionRepository.findViewById(id);
     }
 
     public Optional<Institution> getInstitutionById(Long id) {
@@ -31,6 +41,8 @@ public class InstitutionService {
 
             // Save the institution to the repository
             Institution createdInstitution = institutionRepository.save(institution);
+            tenantDirectory.rebuild();
+            invalidationBus.publish(CacheInvalidation.institution(createdInstitution.getId()));
 
             // Log success message after saving
             logger.info("Institution Created successfully: {}", createdInstitution.getName());
@@ -62,6 +74,8 @@ public class InstitutionService {
             institution.setUpdatedDate(new Date());
 
             Institution updatedInstitution = institutionRepository.save(institution);
+            tenantDirectory.rebuild();
+            invalidationBus.publish(CacheInvalidation.institution(id));
             logger.info("Institution updated successfully: {}", institution.getName());
             return updatedInstitution;
         } catch (Exception e) {
@@ -74,5 +88,7 @@ public class InstitutionService {
         Institution institution = institutionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Institution not found"));
         institutionRepository.delete(institution);
+        tenantDirectory.rebuild();
+        invalidationBus.publish(CacheInvalidation.institution(id));
     }
 }
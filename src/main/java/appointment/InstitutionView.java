@@ -0,0 +1,12 @@
+package appointment;
+
+// Read model for institution endpoints
+public record InstitutionView(Long id,
+                              String name,
+                              String address,
+                              String contactNumber,
+                              String email,
+                              String website,
+                              String registrationNumber,
+                              String logoFilename) {
+}
@@ -0,0 +1,12 @@
+package appointment;
+
+import java.io.Serializable;
+
+public class InvalidCursorException extends RuntimeException implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,140 @@
+package appointment;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * Tells the other instances which in-process caches a write made stale. Writers publish after
+ * updating their own caches; inside a transaction the message only leaves after commit, so other
+ * nodes never reload data that could still roll back. Receivers reload the tenant directory and
+ * slot schedules, drop slot occupancy keys and evict second-level cache entries. Messages are sent
+ * off the caller's thread and messages from this instance are ignored on receipt.
+ */
+@Component
+public class InvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationBus.class);
+
+    private final String origin = UUID.randomUUID().toString();
+
+    @Autowired
+    private ObjectProvider<InvalidationTransport> transportProvider;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    @Autowired
+    private TenantDirectory tenantDirectory;
+
+    @Autowired
+    private SlotScheduleRegistry slotScheduleRegistry;
+
+    @Autowired
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private volatile InvalidationTransport transport;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        InvalidationTransport available = transportProvider.getIfAvailable();
+        if (available == null) {
+            logger.info("No cache invalidation transport configured; caches are refreshed locally only");
+            return;
+        }
+        available.start(this::receive);
+        transport = available;
+        logger.info("Cache invalidation bus started with {} as instance {}", available.getClass().getSimpleName(), origin);
+    }
+
+    public void publish(CacheInvalidation invalidation) {
+        if (transport == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(invalidation);
+                }
+            });
+        } else {
+            send(invalidation);
+        }
+    }
+
+    // Off the caller's thread, so no transaction resources of the writer are reused
+    private void send(CacheInvalidation invalidation) {
+        String message = origin + "|" + invalidation.encode();
+        taskExecutor.execute(() -> {
+            try {
+                transport.send(message);
+            } catch (RuntimeException e) {
+                logger.error("Failed to publish cache invalidation {}: {}", invalidation, e.getMessage());
+            }
+        });
+    }
+
+    private void receive(String message) {
+        int separator = message.indexOf('|');
+        if (separator < 0 || origin.equals(message.substring(0, separator))) {
+            return;
+        }
+        try {
+            apply(CacheInvalidation.decode(message.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            logger.error("Failed to apply cache invalidation '{}': {}", message, e.getMessage());
+        }
+    }
+
+    private void apply(CacheInvalidation invalidation) {
+        logger.debug("Applying remote cache invalidation {}", invalidation);
+        switch (invalidation.type()) {
+            case INSTITUTION -> {
+                if (invalidation.institutionId() != null) {
+                    entityManagerFactory.getCache().evict(Institution.class, invalidation.institutionId());
+                } else {
+                    entityManagerFactory.getCache().evict(Institution.class);
+                }
+                tenantDirectory.rebuild();
+            }
+            case DEPARTMENT -> {
+                entityManagerFactory.getCache().evict(Department.class);
+                evictQueryResults();
+                slotScheduleRegistry.reload();
+                tenantDirectory.rebuild();
+            }
+            case USER -> tenantDirectory.rebuild();
+            case EXERCISE -> {
+                entityManagerFactory.getCache().evict(Exercise.class);
+                evictQueryResults();
+            }
+            case SLOT -> {
+                if (invalidation.institutionId() != null && invalidation.date() != null) {
+                    slotOccupancyIndex.evict(invalidation.institutionId(), invalidation.department(), invalidation.date());
+                } else {
+                    slotOccupancyIndex.clear();
+                }
+            }
+        }
+    }
+
+    // Cached finder results are only invalidated locally by Hibernate, so remote writes drop them all
+    private void evictQueryResults() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+    }
+}
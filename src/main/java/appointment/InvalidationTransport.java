@@ -0,0 +1,15 @@
+package appointment;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries encoded cache invalidations between instances. Selected with
+ * {@code app.invalidation.transport}: none (single instance), jdbc or multicast.
+ */
+public interface InvalidationTransport {
+
+    void send(String message);
+
+    // Starts delivering messages from other instances (and possibly this one) to the receiver
+    void start(Consumer<String> receiver);
+}
@@ -0,0 +1,131 @@
+package appointment;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Invalidation transport over the shared database: senders append to the cache_invalidation
+ * table and every instance polls for rows newer than the last one it saw. Ids are allocated before
+ * the insert commits, so a row can become visible after a higher id was already read; each poll
+ * therefore also re-reads the rows created within app.invalidation.overlap-ms and skips the ones
+ * it already delivered. Needs nothing beyond the database the instances already share; delivery
+ * lags by up to one poll interval.
+ */
+@Component
+@ConditionalOnProperty(name = "app.invalidation.transport", havingValue = "jdbc")
+public class JdbcInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcInvalidationTransport.class);
+
+    // Database time, so the overlap window does not depend on the clocks of the instances
+    private static final String INSERT_SQL = "INSERT INTO cache_invalidation (message, created_at) VALUES (?, NOW(6))";
+
+    private static final String POLL_SQL = "SELECT id, message FROM cache_invalidation WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String LATE_ROWS_SQL = "SELECT id, message FROM cache_invalidation " +
+            "WHERE id <= ? AND created_at >= TIMESTAMPADD(MICROSECOND, ?, NOW(6)) ORDER BY id";
+
+    private static final int POLL_LIMIT = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Value("${app.invalidation.poll-ms:1000}")
+    private long pollMillis;
+
+    @Value("${app.invalidation.prune-ms:600000}")
+    private long pruneMillis;
+
+    @Value("${app.invalidation.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${app.invalidation.overlap-ms:10000}")
+    private long overlapMillis;
+
+    private volatile Consumer<String> receiver;
+
+    private long lastSeenId;
+
+    // Ids delivered within the overlap window, with when they were delivered
+    private final Map<Long, Long> delivered = new HashMap<>();
+
+    record Row(long id, String message) {
+    }
+
+    private static final RowMapper<Row> ROW_MAPPER = (rs, rowNum) -> new Row(rs.getLong("id"), rs.getString("message"));
+
+    @PostConstruct
+    public void init() {
+        jobCoordinator.schedule("invalidation.poll", JobCoordinator.Mode.EVERY_NODE,
+                JobCoordinator.fixedDelay(Duration.ofMillis(pollMillis)), this::poll);
+        jobCoordinator.schedule("invalidation.prune", JobCoordinator.Mode.EXCLUSIVE,
+                JobCoordinator.fixedDelay(Duration.ofMillis(pruneMillis), Duration.ofMillis(pruneMillis)), this::prune);
+    }
+
+    @Override
+    public void send(String message) {
+        jdbcTemplate.update(INSERT_SQL, message);
+    }
+
+    // Starts after the newest row; older invalidations are covered by the caches' own startup load
+    @Override
+    public synchronized void start(Consumer<String> receiver) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM cache_invalidation", Long.class);
+        lastSeenId = maxId == null ? 0 : maxId;
+        this.receiver = receiver;
+        logger.info("Polling cache_invalidation from id {}", lastSeenId);
+    }
+
+    public synchronized void poll() {
+        if (receiver == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        delivered.values().removeIf(deliveredAt -> now - deliveredAt > TimeUnit.MILLISECONDS.toNanos(overlapMillis * 2));
+
+        // Rows that committed after a higher id had already been read
+        for (Row row : jdbcTemplate.query(LATE_ROWS_SQL, ROW_MAPPER, lastSeenId, -overlapMillis * 1000)) {
+            deliver(row, now);
+        }
+        List<Row> rows;
+        do {
+            rows = jdbcTemplate.query(POLL_SQL, ROW_MAPPER, lastSeenId, POLL_LIMIT);
+            for (Row row : rows) {
+                lastSeenId = row.id();
+                deliver(row, now);
+            }
+        } while (rows.size() == POLL_LIMIT);
+    }
+
+    private void deliver(Row row, long now) {
+        if (delivered.putIfAbsent(row.id(), now) == null) {
+            receiver.accept(row.message());
+        }
+    }
+
+    // Exclusive, so only one instance at a time runs the delete
+    public void prune() {
+        int deleted = jdbcTemplate.update("DELETE FROM cache_invalidation WHERE created_at < TIMESTAMPADD(MINUTE, ?, NOW(6))",
+                -retentionMinutes);
+        if (deleted > 0) {
+            logger.debug("Pruned {} cache invalidation rows", deleted);
+        }
+    }
+}
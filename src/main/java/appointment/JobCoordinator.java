@@ -0,0 +1,314 @@
+package appointment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs the application's scheduled jobs on a dedicated, sized scheduler pool and coordinates them
+ * across instances through the database. Exclusive jobs only run on the node holding the job's
+ * lease in job_lease; the holder renews it with every heartbeat, and another node takes over once
+ * it expires. Every node also heartbeats into cluster_node, and {@link #isOwner(Long)} splits
+ * institutions across the live nodes with rendezvous hashing, so per-institution work can be
+ * partitioned instead of leased. Each run records app.jobs.duration and app.jobs.lag timers.
+ */
+@Component
+public class JobCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobCoordinator.class);
+
+    public enum Mode {
+        // Runs on every node, e.g. refreshing a node-local cache or work split with isOwner
+        EVERY_NODE,
+        // Runs on one node at a time, the holder of the job's lease
+        EXCLUSIVE
+    }
+
+    private static final String RENEW_LEASE_SQL = "UPDATE job_lease SET owner = ?, lease_until = TIMESTAMPADD(MICROSECOND, ?, NOW(6)) " +
+            "WHERE job_name = ? AND (owner = ? OR lease_until < NOW(6))";
+
+    private static final String INSERT_LEASE_SQL = "INSERT IGNORE INTO job_lease (job_name, owner, lease_until) " +
+            "VALUES (?, ?, TIMESTAMPADD(MICROSECOND, ?, NOW(6)))";
+
+    private static final String HEARTBEAT_SQL = "INSERT INTO cluster_node (node_id, heartbeat_at) VALUES (?, NOW(6)) " +
+            "ON DUPLICATE KEY UPDATE heartbeat_at = NOW(6)";
+
+    private static final String LIVE_NODES_SQL = "SELECT node_id FROM cluster_node " +
+            "WHERE heartbeat_at >= TIMESTAMPADD(MICROSECOND, ?, NOW(6)) ORDER BY node_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // jdbc coordinates through the database; local treats this node as the whole cluster
+    @Value("${app.jobs.coordination:jdbc}")
+    private String coordination;
+
+    @Value("${app.jobs.pool-size:4}")
+    private int poolSize;
+
+    @Value("${app.jobs.lease-ms:120000}")
+    private long leaseMillis;
+
+    @Value("${app.jobs.heartbeat-ms:10000}")
+    private long heartbeatMillis;
+
+    @Value("${app.jobs.node-timeout-ms:30000}")
+    private long nodeTimeoutMillis;
+
+    private final String nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    private final List<Job> jobs = new ArrayList<>();
+
+    private boolean started;
+
+    private volatile List<String> liveNodes = List.of();
+
+    private final Set<String> heldLeases = ConcurrentHashMap.newKeySet();
+
+    private final List<Runnable> membershipListeners = new CopyOnWriteArrayList<>();
+
+    private final class Job implements Trigger, Runnable {
+
+        private final String name;
+        private final Mode mode;
+        private final Trigger trigger;
+        private final Runnable task;
+        private final Timer lag;
+        private final Counter skipped;
+        private volatile Instant expectedStart;
+
+        Job(String name, Mode mode, Trigger trigger, Runnable task) {
+            this.name = name;
+            this.mode = mode;
+            this.trigger = trigger;
+            this.task = task;
+            this.lag = Timer.builder("app.jobs.lag").description("Delay between a job's scheduled and actual start")
+                    .tag("job", name).register(meterRegistry);
+            this.skipped = Counter.builder("app.jobs.skipped").description("Runs skipped because another node holds the lease")
+                    .tag("job", name).register(meterRegistry);
+        }
+
+        @Override
+        public Instant nextExecution(TriggerContext context) {
+            Instant next = trigger.nextExecution(context);
+            expectedStart = next;
+            return next;
+        }
+
+        @Override
+        public void run() {
+            Instant expected = expectedStart;
+            if (expected != null) {
+                Duration late = Duration.between(expected, Instant.now());
+                lag.record(late.isNegative() ? Duration.ZERO : late);
+            }
+            if (mode == Mode.EXCLUSIVE && !acquireLease(name)) {
+                skipped.increment();
+                return;
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "success";
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                outcome = "failure";
+                logger.error("Job {} failed: {}", name, e.getMessage(), e);
+            } finally {
+                sample.stop(Timer.builder("app.jobs.duration").description("Run time of scheduled jobs")
+                        .tag("job", name).tag("outcome", outcome).register(meterRegistry));
+            }
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("jobs-");
+        scheduler.setRemoveOnCancelPolicy(true);
+        scheduler.initialize();
+        Gauge.builder("app.jobs.cluster.nodes", () -> liveNodes.size())
+                .description("Live nodes seen by the job coordinator").register(meterRegistry);
+    }
+
+    public static Trigger fixedDelay(Duration delay, Duration initialDelay) {
+        PeriodicTrigger trigger = new PeriodicTrigger(delay);
+        trigger.setInitialDelay(initialDelay);
+        return trigger;
+    }
+
+    public static Trigger fixedDelay(Duration delay) {
+        return fixedDelay(delay, Duration.ZERO);
+    }
+
+    public static Trigger cron(String expression) {
+        return new CronTrigger(expression);
+    }
+
+    // Jobs registered before the application is ready start together once it is
+    public synchronized void schedule(String name, Mode mode, Trigger trigger, Runnable task) {
+        Job job = new Job(name, mode, trigger, task);
+        jobs.add(job);
+        if (started) {
+            scheduler.schedule(job, job);
+        }
+    }
+
+    // Called on the scheduler thread after the set of live nodes changed
+    public void onMembershipChange(Runnable listener) {
+        membershipListeners.add(listener);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void start() {
+        if (isClustered()) {
+            heartbeat();
+            scheduler.scheduleWithFixedDelay(this::heartbeat, Instant.now().plusMillis(heartbeatMillis), Duration.ofMillis(heartbeatMillis));
+        } else {
+            liveNodes = List.of(nodeId);
+        }
+        for (Job job : jobs) {
+            scheduler.schedule(job, job);
+        }
+        started = true;
+        logger.info("Job coordinator started as {} ({} coordination) with {} jobs on {} threads", nodeId, coordination, jobs.size(), poolSize);
+    }
+
+    /**
+     * Whether this node is responsible for the institution's share of partitioned work. Every
+     * node ranks all live nodes by a hash of (node, institution) and the top one owns it, so a
+     * node joining or leaving only moves the institutions it gains or loses.
+     */
+    public boolean isOwner(Long institutionId) {
+        List<String> nodes = liveNodes;
+        if (institutionId == null || nodes.size() <= 1 || !nodes.contains(nodeId)) {
+            return true;
+        }
+        String owner = null;
+        long best = Long.MIN_VALUE;
+        for (String node : nodes) {
+            long score = mix(node.hashCode() * 0x9E3779B97F4A7C15L ^ institutionId);
+            if (owner == null || score > best) {
+                owner = node;
+                best = score;
+            }
+        }
+        return nodeId.equals(owner);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    private boolean isClustered() {
+        return "jdbc".equalsIgnoreCase(coordination);
+    }
+
+    private boolean acquireLease(String job) {
+        if (!isClustered()) {
+            return true;
+        }
+        try {
+            long leaseMicros = leaseMillis * 1000;
+            boolean acquired = jdbcTemplate.update(RENEW_LEASE_SQL, nodeId, leaseMicros, job, nodeId) == 1
+                    || jdbcTemplate.update(INSERT_LEASE_SQL, job, nodeId, leaseMicros) == 1;
+            if (acquired && heldLeases.add(job)) {
+                logger.info("Acquired lease for job {}", job);
+            } else if (!acquired && heldLeases.remove(job)) {
+                logger.info("Lost lease for job {}", job);
+            }
+            return acquired;
+        } catch (DataAccessException e) {
+            logger.error("Could not acquire lease for job {}: {}", job, e.getMessage());
+            return false;
+        }
+    }
+
+    // Keeps this node registered and its leases alive, and picks up nodes joining or leaving
+    private void heartbeat() {
+        try {
+            jdbcTemplate.update(HEARTBEAT_SQL, nodeId);
+            for (String job : heldLeases) {
+                jdbcTemplate.update("UPDATE job_lease SET lease_until = TIMESTAMPADD(MICROSECOND, ?, NOW(6)) WHERE job_name = ? AND owner = ?",
+                        leaseMillis * 1000, job, nodeId);
+            }
+            List<String> nodes = jdbcTemplate.queryForList(LIVE_NODES_SQL, String.class, -nodeTimeoutMillis * 1000);
+            // Rows of nodes gone for ten timeouts are dead weight
+            jdbcTemplate.update("DELETE FROM cluster_node WHERE heartbeat_at < TIMESTAMPADD(MICROSECOND, ?, NOW(6))",
+                    -nodeTimeoutMillis * 10_000);
+            if (!nodes.equals(liveNodes)) {
+                logger.info("Live nodes changed from {} to {}", liveNodes, nodes);
+                liveNodes = List.copyOf(nodes);
+                membershipListeners.forEach(Runnable::run);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Job coordinator heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    // Hands leases over right away and leaves the cluster; the jobs themselves are not awaited
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+        if (!isClustered() || !started) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("UPDATE job_lease SET lease_until = NOW(6) WHERE owner = ?", nodeId);
+            jdbcTemplate.update("DELETE FROM cluster_node WHERE node_id = ?", nodeId);
+        } catch (DataAccessException e) {
+            logger.warn("Could not release job leases on shutdown: {}", e.getMessage());
+        }
+    }
+
+    // SplitMix64 finalizer, spreads similar node/institution pairs over the whole range
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
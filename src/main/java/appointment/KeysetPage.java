@@ -0,0 +1,10 @@
+package appointment;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. {@code next} is an opaque cursor for the following
+ * page, or null on the last page.
+ */
+public record KeysetPage<T>(List<T> items, String next) {
+}
@@ -0,0 +1,99 @@
+package appointment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Page sizing and cursor encoding for keyset ("seek") pagination. Pages are read with
+ * {@code WHERE key > :cursor ORDER BY key LIMIT size + 1}; the extra row only tells whether
+ * there is a next page, so no COUNT or OFFSET query is ever needed.
+ */
+@Component
+public class KeysetPagination {
+
+    private static final String SEPARATOR = "|";
+
+    @Value("${app.pagination.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-page-size:500}")
+    private int maxPageSize;
+
+    public int pageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(requested, maxPageSize);
+    }
+
+    // Fetches one row more than the page size to detect whether a next page exists
+    public Pageable probe(int pageSize) {
+        return PageRequest.ofSize(pageSize + 1);
+    }
+
+    public <T> KeysetPage<T> page(List<T> rows, int pageSize, Function<T, String> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new KeysetPage<>(items, cursorOf.apply(items.get(pageSize - 1)));
+    }
+
+    public static String encode(Object... parts) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                raw.append(SEPARATOR);
+            }
+            raw.append(parts[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int expectedParts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(Pattern.quote(SEPARATOR), -1);
+            if (parts.length != expectedParts) {
+                throw new InvalidCursorException("Invalid page cursor: " + cursor);
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid page cursor: " + cursor);
+        }
+    }
+
+    // Cursor that is a single numeric id; a missing cursor starts before the first row
+    public static long decodeId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        return decodeLong(decode(cursor, 1)[0], cursor);
+    }
+
+    public static long decodeLong(String part, String cursor) {
+        try {
+            return Long.parseLong(part);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("Invalid page cursor: " + cursor);
+        }
+    }
+
+    public static LocalDate decodeDate(String part, String cursor) {
+        try {
+            return LocalDate.parse(part);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid page cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package appointment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+
+@Configuration
+public class MailConfig {
+
+    @Value("${app.mail.pool.max-connections:3}")
+    private int maxConnections;
+
+    @Value("${app.mail.pool.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    @Value("${app.mail.pool.idle-timeout-ms:60000}")
+    private long idleTimeoutMillis;
+
+    @Value("${app.mail.pool.borrow-timeout-ms:30000}")
+    private long borrowTimeoutMillis;
+
+    // Shares the session and server settings of the auto-configured spring.mail sender
+    @Bean(destroyMethod = "close")
+    public SmtpTransportPool smtpTransportPool(JavaMailSenderImpl mailSender, JobCoordinator jobCoordinator) {
+        SmtpTransportPool pool = new SmtpTransportPool(mailSender.getSession(),
+                mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp",
+                mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword(),
+                maxConnections, maxMessagesPerConnection, Duration.ofMillis(idleTimeoutMillis), Duration.ofMillis(borrowTimeoutMillis));
+        jobCoordinator.schedule("mail.pool.evict", JobCoordinator.Mode.EVERY_NODE,
+                JobCoordinator.fixedDelay(Duration.ofMillis(idleTimeoutMillis / 2)), pool::evictIdle);
+        return pool;
+    }
+}
@@ -0,0 +1,119 @@
+package appointment;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Invalidation transport over UDP multicast for instances on the same network segment. One
+ * datagram per message, no broker and no acknowledgements: a lost datagram leaves the entry to
+ * the caches' periodic refresh.
+ */
+@Component
+@ConditionalOnProperty(name = "app.invalidation.transport", havingValue = "multicast")
+public class MulticastInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(MulticastInvalidationTransport.class);
+
+    private static final int MAX_DATAGRAM = 1024;
+
+    @Value("${app.invalidation.multicast-group:239.255.27.1}")
+    private String group;
+
+    @Value("${app.invalidation.multicast-port:45588}")
+    private int port;
+
+    @Value("${app.invalidation.multicast-ttl:1}")
+    private int ttl;
+
+    // Empty means the system's default multicast interface
+    @Value("${app.invalidation.multicast-interface:}")
+    private String interfaceName;
+
+    private MulticastSocket socket;
+
+    private InetSocketAddress groupAddress;
+
+    private NetworkInterface networkInterface;
+
+    private Thread listener;
+
+    @Override
+    public void send(String message) {
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        if (payload.length > MAX_DATAGRAM) {
+            logger.warn("Dropping oversized cache invalidation ({} bytes)", payload.length);
+            return;
+        }
+        try {
+            socket.send(new DatagramPacket(payload, payload.length, groupAddress));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void start(Consumer<String> receiver) {
+        try {
+            groupAddress = new InetSocketAddress(InetAddress.getByName(group), port);
+            socket = new MulticastSocket(port);
+            socket.setTimeToLive(ttl);
+            if (!interfaceName.isBlank()) {
+                networkInterface = NetworkInterface.getByName(interfaceName);
+                if (networkInterface == null) {
+                    throw new IllegalStateException("Unknown network interface: " + interfaceName);
+                }
+                socket.setNetworkInterface(networkInterface);
+            }
+            socket.joinGroup(groupAddress, networkInterface);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not join multicast group " + group + ":" + port, e);
+        }
+        listener = new Thread(() -> listen(receiver), "cache-invalidation-multicast");
+        listener.setDaemon(true);
+        listener.start();
+        logger.info("Listening for cache invalidations on {}:{}", group, port);
+    }
+
+    private void listen(Consumer<String> receiver) {
+        byte[] buffer = new byte[MAX_DATAGRAM];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                receiver.accept(new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8));
+            } catch (SocketException e) {
+                // Closed on shutdown
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to receive cache invalidation: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.leaveGroup(groupAddress, networkInterface);
+        } catch (IOException e) {
+            logger.debug("Leaving multicast group failed: {}", e.getMessage());
+        }
+        socket.close();
+    }
+}
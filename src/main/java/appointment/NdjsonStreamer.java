@@ -0,0 +1,86 @@
+package appointment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes query results as newline-delimited JSON while they come off the JDBC cursor. Rows are
+ * serialized one at a time and the persistence context is cleared as it goes, so memory stays
+ * flat no matter how large the table is.
+ */
+@Component
+public class NdjsonStreamer {
+
+    private static final Logger logger = LoggerFactory.getLogger(NdjsonStreamer.class);
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final int CLEAR_EVERY = 200;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private ObjectWriter writer;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        writer = objectMapper.writer();
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> query) {
+        StreamingResponseBody body = output -> readOnlyTransaction.executeWithoutResult(status -> write(query, output));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    private <T> void write(Supplier<Stream<T>> query, OutputStream output) {
+        int written = 0;
+        try (Stream<T> rows = query.get()) {
+            OutputStream buffered = new BufferedOutputStream(output);
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                buffered.write(writer.writeValueAsBytes(iterator.next()));
+                buffered.write('\n');
+                if (++written % CLEAR_EVERY == 0) {
+                    entityManager.clear();
+                    buffered.flush();
+                }
+            }
+            buffered.flush();
+        } catch (IOException e) {
+            // Usually the client went away; the read-only transaction simply ends
+            logger.warn("NDJSON stream stopped after {} rows: {}", written, e.getMessage());
+        }
+        logger.debug("Streamed {} rows as NDJSON", written);
+    }
+}
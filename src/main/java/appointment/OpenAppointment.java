@@ -0,0 +1,13 @@
+package appointment;
+
+import java.sql.Time;
+import java.time.LocalDate;
+
+// A visitor's unresolved appointment, used for batch eligibility checks
+public record OpenAppointment(int visitorId, Long institutionId, String department, LocalDate date, Time time) {
+
+    static OpenAppointment of(Appointment appointment) {
+        return new OpenAppointment(appointment.getVisitor().getVisitorid(), appointment.getInstitution().getId(),
+                appointment.getDepartment(), appointment.getDate(), appointment.getTime());
+    }
+}
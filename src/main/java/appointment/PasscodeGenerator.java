@@ -1,25 +1,148 @@
 package appointment;
 
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Hands out appointment passcodes from a pool of codes that were already checked against the
+ * database. The pool is refilled in the background in batches, one IN query per batch, so taking
+ * a passcode on the booking path is a queue poll with no database round trip. Codes sitting in the
+ * pool are tracked so a refill never produces a code that is already waiting to be used.
+ */
 @Component
 public class PasscodeGenerator {
 
+    private static final Logger logger = LoggerFactory.getLogger(PasscodeGenerator.class);
+
     private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
     private static final int PASSCODE_LENGTH = 6;
-    private static final SecureRandom random = new SecureRandom();
+
+    // Only the refilling thread generates codes in the normal case, so this is not contended
+    private final SecureRandom random = new SecureRandom();
 
     @Autowired
     private AppointmentRepository appointmentRepository;
 
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // A new transaction per shard check, so it gets a connection to that shard's primary even when
+    // called from a booking whose transaction is already bound to one shard
+    private TransactionTemplate shardCheck;
+
+    @Value("${appointment.passcodes.pool-size:1000}")
+    private int poolSize;
+
+    @Value("${appointment.passcodes.refill-threshold:250}")
+    private int refillThreshold;
+
+    private final Queue<String> pool = new ConcurrentLinkedQueue<>();
+
+    private final Set<String> pooled = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        shardCheck = new TransactionTemplate(transactionManager);
+        shardCheck.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        requestRefill();
+    }
+
     public String generateUniquePasscode() {
+        return generateUniquePasscodes(1).get(0);
+    }
+
+    // Takes passcodes from the pool; only an empty pool falls back to validating a batch inline
+    public List<String> generateUniquePasscodes(int count) {
+        List<String> passcodes = new ArrayList<>(count);
         String passcode;
-        do {
-            passcode = generatePasscode();
-        } while (appointmentRepository.existsByPasscode(passcode));
-        return passcode;
+        while (passcodes.size() < count && (passcode = pool.poll()) != null) {
+            pooled.remove(passcode);
+            passcodes.add(passcode);
+        }
+        if (passcodes.size() < count) {
+            logger.warn("Passcode pool exhausted, validating {} passcodes inline", count - passcodes.size());
+            passcodes.addAll(validatedPasscodes(count - passcodes.size()));
+        }
+        if (pool.size() < refillThreshold) {
+            requestRefill();
+        }
+        return passcodes;
+    }
+
+    private void requestRefill() {
+        if (refilling.compareAndSet(false, true)) {
+            taskExecutor.execute(this::refill);
+        }
+    }
+
+    private void refill() {
+        try {
+            int missing = poolSize - pool.size();
+            if (missing > 0) {
+                List<String> fresh = validatedPasscodes(missing);
+                pooled.addAll(fresh);
+                pool.addAll(fresh);
+                logger.debug("Refilled passcode pool with {} passcodes", fresh.size());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to refill passcode pool: {}", e.getMessage());
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    // Generates codes that are neither pooled nor in the database, checking collisions with one query per round
+    private synchronized List<String> validatedPasscodes(int count) {
+        Set<String> passcodes = new LinkedHashSet<>();
+        while (passcodes.size() < count) {
+            Set<String> candidates = new HashSet<>();
+            while (candidates.size() < count - passcodes.size()) {
+                String candidate = generatePasscode();
+                if (!passcodes.contains(candidate) && !pooled.contains(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+            // Checked on every shard so a passcode identifies one appointment across institutions
+            for (String shard : shardMap.allShards()) {
+                ShardContext.run(shard, () -> shardCheck.executeWithoutResult(
+                        status -> appointmentRepository.findExistingPasscodes(candidates).forEach(candidates::remove)));
+            }
+            passcodes.addAll(candidates);
+        }
+        return new ArrayList<>(passcodes);
     }
 
     private String generatePasscode() {
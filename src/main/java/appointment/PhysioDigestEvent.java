@@ -0,0 +1,109 @@
+package appointment;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// An appointment change waiting for the physiotherapist's next digest email
+@Entity
+@Table(name = "physio_digest_event", indexes = {
+        @Index(name = "idx_physio_digest_event_user", columnList = "user_id, id")
+})
+public class PhysioDigestEvent {
+
+    public enum Type {
+        ASSIGNED, RESCHEDULED, CANCELED, REMINDER
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "physio_digest_event_ids")
+    @TableGenerator(name = "physio_digest_event_ids", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "physio_digest_event", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private int userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private Type type;
+
+    @Column(name = "appointment_id", nullable = false)
+    private int appointmentId;
+
+    @Column(name = "visitor_name")
+    private String visitorName;
+
+    @Column(name = "date", nullable = false)
+    private LocalDate date;
+
+    @Column(name = "time", nullable = false)
+    private Time time;
+
+    @Column(name = "meeting_link")
+    private String meetingLink;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public PhysioDigestEvent() {
+    }
+
+    public PhysioDigestEvent(int userId, Type type, Appointment appointment) {
+        this.userId = userId;
+        this.type = type;
+        this.appointmentId = appointment.getAppointmentid();
+        this.visitorName = appointment.getVisitor().getVisitorname();
+        this.date = appointment.getDate();
+        this.time = appointment.getTime();
+        this.meetingLink = appointment.getVideoMeetingLink();
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getAppointmentId() {
+        return appointmentId;
+    }
+
+    public String getVisitorName() {
+        return visitorName;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public Time getTime() {
+        return time;
+    }
+
+    public String getMeetingLink() {
+        return meetingLink;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,25 @@
+package appointment;
+
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PhysioDigestEventRepository extends JpaRepository<PhysioDigestEvent, Long> {
+
+    List<PhysioDigestEvent> findByUserIdOrderByIdAsc(int userId);
+
+    @Query("SELECT DISTINCT e.userId FROM PhysioDigestEvent e")
+    List<Integer> findUserIds();
+
+    // Only removes what the digest included; events recorded while it was built wait for the next one
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PhysioDigestEvent e WHERE e.userId = :userId AND e.id <= :maxId")
+    int deleteIncluded(@Param("userId") int userId, @Param("maxId") Long maxId);
+}
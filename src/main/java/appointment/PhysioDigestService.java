@@ -0,0 +1,173 @@
+package appointment;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes physiotherapist notifications. Physiotherapists who opted into the digest get their
+ * appointment changes collected per {@code Users.userid} and sent as one email on the
+ * app.digest.cron schedule, together with their virtual appointments up to the next digest, which
+ * replaces the per-appointment reminders. A change to an appointment that starts before the next
+ * digest could reach them is urgent and is sent right away. Everyone else keeps one email per
+ * assignment and reminder.
+ */
+@Service
+public class PhysioDigestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhysioDigestService.class);
+
+    private static final Map<PhysioDigestEvent.Type, String> CHANGE_LABELS = Map.of(
+            PhysioDigestEvent.Type.ASSIGNED, "New appointment",
+            PhysioDigestEvent.Type.RESCHEDULED, "Rescheduled",
+            PhysioDigestEvent.Type.CANCELED, "Canceled",
+            PhysioDigestEvent.Type.REMINDER, "Reminder");
+
+    @Autowired
+    private PhysioDigestEventRepository physioDigestEventRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.digest.cron:0 0 7 * * *}")
+    private String digestCron;
+
+    private CronExpression schedule;
+
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    public void init() {
+        schedule = CronExpression.parse(digestCron);
+        transaction = new TransactionTemplate(transactionManager);
+        jobCoordinator.schedule("physio.digest", JobCoordinator.Mode.EXCLUSIVE, JobCoordinator.cron(digestCron), this::sendDigests);
+    }
+
+    // Joins the caller's transaction, so a recorded change is dropped with a booking that rolls back
+    public void notify(Appointment appointment, PhysioDigestEvent.Type type) {
+        Users physiotherapist = appointment.getUser();
+        if (physiotherapist == null || appointment.getMeetingType() != MeetingType.VIRTUAL) {
+            return;
+        }
+        if (!physiotherapist.isDigestEnabled()) {
+            if (type == PhysioDigestEvent.Type.ASSIGNED) {
+                emailService.sendPhysiotherapistNotification(appointment);
+            } else if (type == PhysioDigestEvent.Type.REMINDER) {
+                emailService.sendPhysiotherapistReminder(appointment);
+            }
+            return;
+        }
+        // Listed in a digest's agenda, or sent as an urgent change when it was booked
+        if (type == PhysioDigestEvent.Type.REMINDER) {
+            return;
+        }
+        PhysioDigestEvent event = new PhysioDigestEvent(physiotherapist.getUserid(), type, appointment);
+        if (startsAt(appointment).isBefore(nextDigestAt())) {
+            emailService.sendPhysiotherapistDigest(physiotherapist, List.of(toVariables(event)), List.of());
+            logger.info("Sent urgent {} notice for appointment {} to physiotherapist {}", type, appointment.getAppointmentid(), physiotherapist.getUserid());
+            return;
+        }
+        physioDigestEventRepository.save(event);
+    }
+
+    public void sendDigests() {
+        int sent = 0;
+        for (String shard : shardMap.allShards()) {
+            sent += ShardContext.call(shard, this::sendShardDigests);
+        }
+        logger.info("Queued {} physiotherapist digests", sent);
+    }
+
+    private int sendShardDigests() {
+        // Physiotherapists who opted out since keep getting the changes recorded before that
+        Map<Integer, Users> recipients = new LinkedHashMap<>();
+        usersRepository.findByDigestEnabledTrue().forEach(user -> recipients.put(user.getUserid(), user));
+        usersRepository.findAllById(physioDigestEventRepository.findUserIds()).forEach(user -> recipients.putIfAbsent(user.getUserid(), user));
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = nextDigestAt();
+        int sent = 0;
+        for (Users physiotherapist : recipients.values()) {
+            try {
+                Boolean queued = transaction.execute(status -> sendDigest(physiotherapist, now, until));
+                if (Boolean.TRUE.equals(queued)) {
+                    sent++;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to queue digest for physiotherapist {}: {}", physiotherapist.getUserid(), e.getMessage());
+            }
+        }
+        return sent;
+    }
+
+    // Queues the email and removes the included changes in one transaction
+    private boolean sendDigest(Users physiotherapist, LocalDateTime now, LocalDateTime until) {
+        List<PhysioDigestEvent> events = physioDigestEventRepository.findByUserIdOrderByIdAsc(physiotherapist.getUserid());
+        List<Map<String, Object>> agenda = new ArrayList<>();
+        if (physiotherapist.isDigestEnabled()) {
+            for (Appointment appointment : appointmentRepository.findPhysiotherapistAgenda(physiotherapist.getUserid(),
+                    MeetingType.VIRTUAL, ReminderScheduler.REMINDABLE_STATUSES, now.toLocalDate(), until.toLocalDate())) {
+                LocalDateTime startsAt = startsAt(appointment);
+                if (startsAt.isAfter(now) && startsAt.isBefore(until)) {
+                    agenda.add(toVariables(new PhysioDigestEvent(physiotherapist.getUserid(), PhysioDigestEvent.Type.REMINDER, appointment)));
+                }
+            }
+        }
+        if (events.isEmpty() && agenda.isEmpty()) {
+            return false;
+        }
+        List<Map<String, Object>> changes = new ArrayList<>(events.size());
+        events.forEach(event -> changes.add(toVariables(event)));
+        emailService.sendPhysiotherapistDigest(physiotherapist, changes, agenda);
+        if (!events.isEmpty()) {
+            physioDigestEventRepository.deleteIncluded(physiotherapist.getUserid(), events.get(events.size() - 1).getId());
+        }
+        return true;
+    }
+
+    private LocalDateTime nextDigestAt() {
+        return schedule.next(LocalDateTime.now());
+    }
+
+    private static LocalDateTime startsAt(Appointment appointment) {
+        return LocalDateTime.of(appointment.getDate(), appointment.getTime().toLocalTime());
+    }
+
+    private static Map<String, Object> toVariables(PhysioDigestEvent event) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("change", CHANGE_LABELS.get(event.getType()));
+        variables.put("visitorName", event.getVisitorName());
+        variables.put("date", event.getDate().toString());
+        variables.put("time", event.getTime().toString());
+        variables.put("meetingLink", event.getMeetingLink());
+        return variables;
+    }
+}
@@ -0,0 +1,19 @@
+package appointment;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Spring's {@code @Transactional(readOnly = true)} under a name that does not clash with the
+ * {@code jakarta.transaction.Transactional} used across the services. Read-only transactions are
+ * sent to a read replica when replicas are configured; see {@link ReplicaRoutingDataSource}.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Transactional(readOnly = true)
+public @interface ReadOnlyTransactional {
+}
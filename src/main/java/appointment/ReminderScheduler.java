@@ -0,0 +1,212 @@
+package appointment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.sql.Time;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sends appointment reminders from an in-memory queue ordered by fire time. Upcoming appointments
+ * are loaded for a rolling horizon, and booking, cancel and reschedule keep the queue current
+ * between reloads. Each tick only looks at the head of the queue, so the work is proportional to
+ * the reminders that are due. The persisted {@code reminder_sent_at} marker is claimed with a
+ * conditional update before sending, so a reminder goes out once even with several instances.
+ * Appointment ids are per shard, so reminders carry the shard they were loaded from. With several
+ * nodes, each reload only queues the institutions the job coordinator assigns to this node.
+ */
+@Component
+public class ReminderScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReminderScheduler.class);
+
+    static final List<AppointmentStatus> REMINDABLE_STATUSES = List.of(AppointmentStatus.BOOKED, AppointmentStatus.RESCHEDULED);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private PhysioDigestService physioDigestService;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Value("${appointment.reminders.lead-minutes:30}")
+    private long leadMinutes;
+
+    @Value("${appointment.reminders.horizon-hours:24}")
+    private long horizonHours;
+
+    @Value("${appointment.reminders.retry-minutes:5}")
+    private long retryMinutes;
+
+    @Value("${appointment.reminders.reload-ms:900000}")
+    private long reloadMillis;
+
+    @Value("${appointment.reminders.tick-ms:15000}")
+    private long tickMillis;
+
+    // Carries the slot it was computed for, so an entry left behind by a move elsewhere cannot fire
+    record Reminder(LocalDateTime fireAt, String shard, int appointmentId, LocalDate date, Time time) {
+
+        Key key() {
+            return new Key(shard, appointmentId);
+        }
+    }
+
+    record Key(String shard, int appointmentId) {
+    }
+
+    private final ConcurrentSkipListSet<Reminder> queue = new ConcurrentSkipListSet<>(
+            Comparator.comparing(Reminder::fireAt).thenComparing(Reminder::shard).thenComparingInt(Reminder::appointmentId));
+
+    // Current queue entry per appointment, so cancel and reschedule can remove it directly
+    private final Map<Key, Reminder> pending = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime loadedUntil = LocalDateTime.MIN;
+
+    @PostConstruct
+    public void init() {
+        jobCoordinator.schedule("reminders.reload", JobCoordinator.Mode.EVERY_NODE,
+                JobCoordinator.fixedDelay(Duration.ofMillis(reloadMillis), Duration.ofMillis(reloadMillis)), this::reload);
+        jobCoordinator.schedule("reminders.tick", JobCoordinator.Mode.EVERY_NODE,
+                JobCoordinator.fixedDelay(Duration.ofMillis(tickMillis)), this::tick);
+        jobCoordinator.onMembershipChange(this::rebalance);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+    }
+
+    // Institutions moved between nodes: start over with the ones this node owns now
+    private void rebalance() {
+        queue.clear();
+        pending.clear();
+        reload();
+    }
+
+    // Refills the horizon; entries already queued are simply replaced
+    public void reload() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plusHours(horizonHours);
+        int candidates = 0;
+        int queued = 0;
+        for (String shard : shardMap.allShards()) {
+            List<Appointment> appointments = ShardContext.call(shard, () -> appointmentRepository.findPendingReminders(
+                    MeetingType.VIRTUAL, REMINDABLE_STATUSES, now.toLocalDate(), until.plusMinutes(leadMinutes).toLocalDate()));
+            candidates += appointments.size();
+            for (Appointment appointment : appointments) {
+                if (appointment.getInstitution() != null && !jobCoordinator.isOwner(appointment.getInstitution().getId())) {
+                    continue;
+                }
+                if (enqueue(shard, appointment, now, until)) {
+                    queued++;
+                }
+            }
+        }
+        loadedUntil = until;
+        logger.info("Reminder queue reloaded: {} queued from {} candidates, {} pending in total", queued, candidates, pending.size());
+    }
+
+    public void tick() {
+        LocalDateTime now = LocalDateTime.now();
+        // Entries are only taken out once due, and only the thread whose remove succeeds fires one, so a
+        // cancel that removed it first wins and a not-yet-due entry is never out of the queue
+        for (Reminder due : queue) {
+            if (due.fireAt().isAfter(now)) {
+                break;
+            }
+            if (!queue.remove(due)) {
+                continue;
+            }
+            pending.remove(due.key(), due);
+            ShardContext.run(due.shard(), () -> fire(due, now));
+        }
+    }
+
+    // Called after an appointment is booked or moved, on the shard the booking was made on. The node
+    // that took the booking queues it even when another node owns the institution, which covers the
+    // time until the owner's next reload; the claim in fire() keeps the reminder to one send
+    public void schedule(Appointment appointment) {
+        cancel(appointment.getAppointmentid());
+        enqueue(ShardContext.currentOrDefault(), appointment, LocalDateTime.now(), loadedUntil);
+    }
+
+    public void cancel(int appointmentId) {
+        Reminder existing = pending.remove(new Key(ShardContext.currentOrDefault(), appointmentId));
+        if (existing != null) {
+            queue.remove(existing);
+        }
+    }
+
+    private boolean enqueue(String shard, Appointment appointment, LocalDateTime now, LocalDateTime until) {
+        if (appointment.getMeetingType() != MeetingType.VIRTUAL
+                || appointment.getReminderSentAt() != null
+                || !REMINDABLE_STATUSES.contains(appointment.getAppointmentstatus())) {
+            return false;
+        }
+        LocalDateTime startsAt = LocalDateTime.of(appointment.getDate(), appointment.getTime().toLocalTime());
+        LocalDateTime fireAt = startsAt.minusMinutes(leadMinutes);
+        // Already started, or beyond the horizon: the next reload picks it up
+        if (!startsAt.isAfter(now) || fireAt.isAfter(until)) {
+            return false;
+        }
+        Reminder reminder = new Reminder(fireAt.isBefore(now) ? now : fireAt, shard, appointment.getAppointmentid(),
+                appointment.getDate(), appointment.getTime());
+        Reminder previous = pending.put(reminder.key(), reminder);
+        if (previous != null) {
+            queue.remove(previous);
+        }
+        queue.add(reminder);
+        return true;
+    }
+
+    private void fire(Reminder reminder, LocalDateTime now) {
+        // Claims the reminder; 0 rows means it was sent elsewhere, the appointment is no longer open, or
+        // it was moved since this entry was queued (the owner's next reload queues the new time)
+        if (appointmentRepository.markReminderSent(reminder.appointmentId(), now, REMINDABLE_STATUSES,
+                reminder.date(), reminder.time()) == 0) {
+            return;
+        }
+        Appointment appointment = appointmentRepository.findById(reminder.appointmentId()).orElse(null);
+        if (appointment == null) {
+            return;
+        }
+        try {
+            emailService.sendReminderEmail(appointment);
+            physioDigestService.notify(appointment, PhysioDigestEvent.Type.REMINDER);
+            logger.info("Queued reminder for appointment {}", reminder.appointmentId());
+        } catch (RuntimeException e) {
+            logger.error("Failed to queue reminder for appointment {}: {}", reminder.appointmentId(), e.getMessage());
+            appointmentRepository.clearReminderSent(reminder.appointmentId());
+            appointment.setReminderSentAt(null);
+            LocalDateTime retryAt = now.plusMinutes(retryMinutes);
+            if (LocalDateTime.of(appointment.getDate(), appointment.getTime().toLocalTime()).isAfter(retryAt)) {
+                Reminder retry = new Reminder(retryAt, reminder.shard(), reminder.appointmentId(), reminder.date(), reminder.time());
+                pending.put(retry.key(), retry);
+                queue.add(retry);
+            }
+        }
+    }
+}
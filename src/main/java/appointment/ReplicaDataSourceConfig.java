@@ -0,0 +1,79 @@
+package appointment;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured DataSource with primary/replica routing when
+ * {@code app.datasource.replica-urls} is set. Both pools take the usual spring.datasource.hikari.*
+ * settings; replicas use the primary's credentials unless replica ones are given.
+ */
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replica-urls:}'.isBlank()")
+public class ReplicaDataSourceConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaDataSourceConfig.class);
+
+    @Value("${app.datasource.replica-urls}")
+    private List<String> replicaUrls;
+
+    @Value("${app.datasource.replica-username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${app.datasource.replica-password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${app.datasource.replica-pool-size:10}")
+    private int replicaPoolSize;
+
+    @Value("${app.datasource.sticky-primary-ms:5000}")
+    private long stickyPrimaryMillis;
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource routingDataSource(DataSourceProperties properties, Environment environment) {
+        HikariDataSource primary = HikariPools.create(properties, environment, "primary", properties.determineUrl(),
+                properties.determineUsername(), properties.determinePassword());
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = HikariPools.create(properties, environment, "replica-" + replicas.size(), url.trim(),
+                    replicaUsername, replicaPassword);
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        logger.info("Routing read-only transactions across {} read replica(s)", replicas.size());
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    // The lazy proxy defers the physical connection until the routing key can be decided. With
+    // sharding on, the shard routing wraps the replica routing instead (see ShardingConfig)
+    @Bean
+    @Primary
+    @ConditionalOnExpression("'${app.sharding.shards:}'.isBlank()")
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<PrimaryStickinessFilter> primaryStickinessFilter() {
+        FilterRegistrationBean<PrimaryStickinessFilter> registration =
+                new FilterRegistrationBean<>(new PrimaryStickinessFilter(stickyPrimaryMillis));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -2,14 +2,50 @@ package appointment;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
+@EnableWebSecurity
 public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new Argon2PasswordEncoder(16, 32, 1, 16, 32);
     }
-}
\ No newline at end of file
+
+    // Staff sign in with their email and password (HTTP Basic) on the endpoints below
+    @Bean
+    public UserDetailsService staffUserDetailsService(UsersRepository usersRepository) {
+        return email -> usersRepository.findByEmail(email)
+                .filter(StaffUserDetails::hasKnownRole)
+                .map(StaffUserDetails::new)
+                .orElseThrow(() -> new UsernameNotFoundException("No staff user " + email));
+    }
+
+    /**
+     * Authenticates the staff endpoints that act across visitors or on other users' settings. Other
+     * requests match no filter chain and pass through unchanged. Per-institution checks are made by
+     * the services against the {@link StaffUserDetails} of the caller.
+     */
+    @Bean
+    public SecurityFilterChain staffApiSecurity(HttpSecurity http) throws Exception {
+        http.securityMatcher("/api/campaigns/**", "/api/users/*/digest")
+                .authorizeHttpRequests(requests -> requests
+                        .requestMatchers("/api/campaigns/**").hasAnyRole("SUPERADMIN", "INSTITUTION_ADMIN")
+                        .requestMatchers("/api/users/*/digest").hasAnyRole("INSTITUTION_ADMIN", "PHYSIOTHERAPIST")
+                        .anyRequest().denyAll())
+                .httpBasic(Customizer.withDefaults())
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(sessions -> sessions.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+        return http.build();
+    }
+}
@@ -0,0 +1,57 @@
+package appointment;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard the current thread's database work runs on. Unset means the default (global) database.
+ * The shard is read when a transaction takes its connection, so it must be set before the
+ * transaction's first statement.
+ */
+public final class ShardContext {
+
+    public static final String DEFAULT = "default";
+
+    private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    // The shard set for this thread, or null when none was chosen
+    public static String current() {
+        return current.get();
+    }
+
+    public static String currentOrDefault() {
+        String shard = current.get();
+        return shard == null ? DEFAULT : shard;
+    }
+
+    public static void set(String shard) {
+        current.set(shard);
+    }
+
+    public static void clear() {
+        current.remove();
+    }
+
+    public static void run(String shard, Runnable work) {
+        call(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <T> T call(String shard, Supplier<T> work) {
+        String previous = current.get();
+        current.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+}
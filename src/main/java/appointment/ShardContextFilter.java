@@ -0,0 +1,65 @@
+package appointment;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Binds appointment requests to the shard of their institution. The institution comes from the
+ * X-Institution-Id header, an institutionId parameter or an /institution/{id} path segment.
+ * Appointment requests without one run on the default database, or across all shards where the
+ * service gathers; every other endpoint works on global data and always uses the default database.
+ */
+public class ShardContextFilter extends OncePerRequestFilter {
+
+    public static final String INSTITUTION_HEADER = "X-Institution-Id";
+
+    private static final Pattern INSTITUTION_PATH = Pattern.compile("/institution/(\\d+)");
+
+    private final ShardMap shardMap;
+
+    public ShardContextFilter(ShardMap shardMap) {
+        this.shardMap = shardMap;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/appointments");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Long institutionId = institutionOf(request);
+        if (institutionId != null) {
+            ShardContext.set(shardMap.shardOf(institutionId));
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    private static Long institutionOf(HttpServletRequest request) {
+        String value = request.getHeader(INSTITUTION_HEADER);
+        if (value == null) {
+            value = request.getParameter("institutionId");
+        }
+        if (value == null) {
+            Matcher matcher = INSTITUTION_PATH.matcher(request.getRequestURI());
+            value = matcher.find() ? matcher.group(1) : null;
+        }
+        try {
+            return value == null ? null : Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
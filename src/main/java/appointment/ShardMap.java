@@ -0,0 +1,114 @@
+package appointment;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which database holds an institution's appointments. Shards are listed in
+ * {@code app.sharding.shards} as {@code name=jdbcUrl} pairs and institutions are assigned with
+ * {@code app.sharding.institutions} as {@code institutionId=name} pairs; every institution not
+ * listed stays on the default database.
+ */
+@Component
+public class ShardMap {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardMap.class);
+
+    @Value("${app.sharding.shards:}")
+    private String shardsSpec;
+
+    @Value("${app.sharding.institutions:}")
+    private String institutionsSpec;
+
+    private Map<String, String> shardUrls = Map.of();
+
+    private Map<Long, String> institutionShards = Map.of();
+
+    private List<String> allShards = List.of(ShardContext.DEFAULT);
+
+    @PostConstruct
+    public void init() {
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : pairs(shardsSpec, "app.sharding.shards").entrySet()) {
+            if (ShardContext.DEFAULT.equals(entry.getKey())) {
+                throw new IllegalStateException("'" + ShardContext.DEFAULT + "' is reserved for the default database");
+            }
+            urls.put(entry.getKey(), entry.getValue());
+        }
+        Map<Long, String> institutions = new HashMap<>();
+        for (Map.Entry<String, String> entry : pairs(institutionsSpec, "app.sharding.institutions").entrySet()) {
+            if (!urls.containsKey(entry.getValue())) {
+                throw new IllegalStateException("Institution " + entry.getKey() + " is mapped to unknown shard " + entry.getValue());
+            }
+            try {
+                institutions.put(Long.valueOf(entry.getKey()), entry.getValue());
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Invalid institution id in app.sharding.institutions: " + entry.getKey());
+            }
+        }
+        List<String> shards = new ArrayList<>();
+        shards.add(ShardContext.DEFAULT);
+        shards.addAll(urls.keySet());
+
+        shardUrls = Collections.unmodifiableMap(urls);
+        institutionShards = Map.copyOf(institutions);
+        allShards = List.copyOf(shards);
+        if (isEnabled()) {
+            logger.info("Sharding enabled: shards {}, {} institutions mapped off the default database", urls.keySet(), institutions.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return !shardUrls.isEmpty();
+    }
+
+    public String shardOf(Long institutionId) {
+        return institutionId == null ? ShardContext.DEFAULT : institutionShards.getOrDefault(institutionId, ShardContext.DEFAULT);
+    }
+
+    // The default database first, then the configured shards
+    public List<String> allShards() {
+        return allShards;
+    }
+
+    public Map<String, String> shardUrls() {
+        return shardUrls;
+    }
+
+    // Rejects work for an institution whose shard is not the one this thread is bound to
+    public void requireCurrentShard(Long institutionId) {
+        String shard = shardOf(institutionId);
+        if (!shard.equals(ShardContext.currentOrDefault())) {
+            throw new IllegalArgumentException("Requests for institution " + institutionId
+                    + " must carry the " + ShardContextFilter.INSTITUTION_HEADER + " header");
+        }
+    }
+
+    private static Map<String, String> pairs(String spec, String property) {
+        Map<String, String> pairs = new LinkedHashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return pairs;
+        }
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator <= 0 || separator == entry.length() - 1) {
+                throw new IllegalStateException("Invalid entry in " + property + ": " + entry.trim());
+            }
+            pairs.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+        return pairs;
+    }
+}
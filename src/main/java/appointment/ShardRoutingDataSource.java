@@ -0,0 +1,47 @@
+package appointment;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes each connection to the shard bound to the current thread by {@link ShardContext}. Like
+ * the replica routing it must sit behind a LazyConnectionDataSourceProxy, so the shard is chosen
+ * when the transaction's first statement runs.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final Map<String, DataSource> shards;
+    private final List<Closeable> ownedPools;
+
+    public ShardRoutingDataSource(DataSource defaultDataSource, Map<String, DataSource> shards, List<Closeable> ownedPools) {
+        this.shards = Map.copyOf(shards);
+        this.ownedPools = List.copyOf(ownedPools);
+        Map<Object, Object> targets = new HashMap<>(shards);
+        targets.put(ShardContext.DEFAULT, defaultDataSource);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(defaultDataSource);
+        setLenientFallback(false);
+    }
+
+    public DataSource shard(String name) {
+        return shards.get(name);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.currentOrDefault();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Closeable pool : ownedPools) {
+            pool.close();
+        }
+    }
+}
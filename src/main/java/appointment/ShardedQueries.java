@@ -0,0 +1,63 @@
+package appointment;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Scatter-gather for listings that span institutions. When the request is not bound to a shard
+ * the query runs on every shard in parallel, each in its own read-only transaction, and the rows
+ * come back concatenated in shard order. Bound requests and unsharded deployments just run it.
+ */
+@Component
+public class ShardedQueries {
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    public <T> List<T> gather(Supplier<List<T>> query) {
+        if (!shardMap.isEnabled() || ShardContext.current() != null) {
+            return query.get();
+        }
+        List<CompletableFuture<List<T>>> parts = new ArrayList<>();
+        for (String shard : shardMap.allShards()) {
+            parts.add(CompletableFuture.supplyAsync(
+                    () -> ShardContext.call(shard, () -> readOnlyTransaction.execute(status -> query.get())), taskExecutor));
+        }
+        List<T> rows = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<T>> part : parts) {
+                rows.addAll(part.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,99 @@
+package appointment;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Puts institution shards in front of the DataSource when {@code app.sharding.shards} is set. The
+ * default database stays as configured (including read replicas, when those are on); each shard
+ * gets its own pool with the usual spring.datasource.hikari.* settings and is migrated by Flyway
+ * together with the default database.
+ */
+@Configuration
+@ConditionalOnExpression("!'${app.sharding.shards:}'.isBlank()")
+public class ShardingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardingConfig.class);
+
+    @Value("${app.sharding.username:${spring.datasource.username:}}")
+    private String shardUsername;
+
+    @Value("${app.sharding.password:${spring.datasource.password:}}")
+    private String shardPassword;
+
+    @Value("${app.sharding.pool-size:10}")
+    private int shardPoolSize;
+
+    @Bean(destroyMethod = "close")
+    public ShardRoutingDataSource shardRoutingDataSource(ShardMap shardMap, DataSourceProperties properties, Environment environment,
+                                                         ObjectProvider<ReplicaRoutingDataSource> replicaRouting) {
+        List<Closeable> ownedPools = new ArrayList<>();
+        DataSource defaultDataSource = replicaRouting.getIfAvailable();
+        if (defaultDataSource == null) {
+            HikariDataSource primary = HikariPools.create(properties, environment, "primary", properties.determineUrl(),
+                    properties.determineUsername(), properties.determinePassword());
+            ownedPools.add(primary);
+            defaultDataSource = primary;
+        }
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        for (Map.Entry<String, String> shard : shardMap.shardUrls().entrySet()) {
+            HikariDataSource pool = HikariPools.create(properties, environment, "shard-" + shard.getKey(), shard.getValue(),
+                    shardUsername, shardPassword);
+            pool.setMaximumPoolSize(shardPoolSize);
+            ownedPools.add(pool);
+            shards.put(shard.getKey(), pool);
+        }
+        logger.info("Routing appointment data across the default database and {} shard(s)", shards.size());
+        return new ShardRoutingDataSource(defaultDataSource, shards, ownedPools);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    // Every shard gets the same schema as the default database
+    @Bean
+    public FlywayMigrationStrategy shardedMigration(ShardMap shardMap, ShardRoutingDataSource shardRoutingDataSource) {
+        return flyway -> {
+            flyway.migrate();
+            for (String shard : shardMap.shardUrls().keySet()) {
+                logger.info("Migrating shard {}", shard);
+                Flyway.configure()
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(shardRoutingDataSource.shard(shard))
+                        .load()
+                        .migrate();
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<ShardContextFilter> shardContextFilter(ShardMap shardMap) {
+        FilterRegistrationBean<ShardContextFilter> registration = new FilterRegistrationBean<>(new ShardContextFilter(shardMap));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,9 @@
+package appointment;
+
+import java.sql.Time;
+
+// Projection for grouped "booked per slot" aggregate queries
+public interface SlotCount {
+    Time getTime();
+    long getBooked();
+}
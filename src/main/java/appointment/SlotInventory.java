@@ -0,0 +1,107 @@
+package appointment;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import java.sql.Time;
+import java.time.LocalDate;
+
+// One row per bookable slot, holding the seats that are still free
+@Entity
+@Table(name = "slot_inventory", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_slot_inventory_slot", columnNames = {"institution_id", "department", "date", "time"})
+})
+public class SlotInventory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "institution_id", nullable = false)
+    private Long institutionId;
+
+    @Column(name = "department", nullable = false)
+    private String department;
+
+    @Column(name = "date", nullable = false)
+    private LocalDate date;
+
+    @Column(name = "time", nullable = false)
+    private Time time;
+
+    @Column(name = "capacity", nullable = false)
+    private int capacity;
+
+    @Column(name = "remaining_capacity", nullable = false)
+    private int remainingCapacity;
+
+    public SlotInventory() {
+    }
+
+    public SlotInventory(Long institutionId, String department, LocalDate date, Time time, int capacity, int remainingCapacity) {
+        this.institutionId = institutionId;
+        this.department = department;
+        this.date = date;
+        this.time = time;
+        this.capacity = capacity;
+        this.remainingCapacity = remainingCapacity;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getInstitutionId() {
+        return institutionId;
+    }
+
+    public void setInstitutionId(Long institutionId) {
+        this.institutionId = institutionId;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public Time getTime() {
+        return time;
+    }
+
+    public void setTime(Time time) {
+        this.time = time;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getRemainingCapacity() {
+        return remainingCapacity;
+    }
+
+    public void setRemainingCapacity(int remainingCapacity) {
+        this.remainingCapacity = remainingCapacity;
+    }
+}
@@ -0,0 +1,56 @@
+package appointment;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.Collection;
+
+@Repository
+public interface SlotInventoryRepository extends JpaRepository<SlotInventory, Long> {
+
+    boolean existsByInstitutionIdAndDepartmentAndDateAndTime(Long institutionId, String department, LocalDate date, Time time);
+
+    // Takes one seat only if one is left; returns the number of rows changed (0 or 1)
+    @Modifying
+    @Query("UPDATE SlotInventory s SET s.remainingCapacity = s.remainingCapacity - 1 " +
+            "WHERE s.institutionId = :institutionId AND s.department = :department " +
+            "AND s.date = :date AND s.time = :time AND s.remainingCapacity > 0")
+    int claimSeat(@Param("institutionId") Long institutionId,
+                  @Param("department") String department,
+                  @Param("date") LocalDate date,
+                  @Param("time") Time time);
+
+    @Modifying
+    @Query("UPDATE SlotInventory s SET s.remainingCapacity = s.remainingCapacity + 1 " +
+            "WHERE s.institutionId = :institutionId AND s.department = :department " +
+            "AND s.date = :date AND s.time = :time AND s.remainingCapacity < s.capacity")
+    int releaseSeat(@Param("institutionId") Long institutionId,
+                    @Param("department") String department,
+                    @Param("date") LocalDate date,
+                    @Param("time") Time time);
+
+    @Modifying
+    @Query("UPDATE SlotInventory s SET s.remainingCapacity = s.remainingCapacity + (:capacity - s.capacity), s.capacity = :capacity " +
+            "WHERE s.institutionId = :institutionId AND s.department = :department " +
+            "AND s.date >= :fromDate AND s.time = :time AND s.capacity <> :capacity")
+    int updateCapacity(@Param("institutionId") Long institutionId,
+                       @Param("department") String department,
+                       @Param("fromDate") LocalDate fromDate,
+                       @Param("time") Time time,
+                       @Param("capacity") int capacity);
+
+    // Slots dropped from a template keep their bookings but accept no new ones
+    @Modifying
+    @Query("UPDATE SlotInventory s SET s.remainingCapacity = s.remainingCapacity - s.capacity, s.capacity = 0 " +
+            "WHERE s.institutionId = :institutionId AND s.department = :department " +
+            "AND s.date >= :fromDate AND s.time NOT IN :times AND s.capacity <> 0")
+    int closeSlotsOutside(@Param("institutionId") Long institutionId,
+                          @Param("department") String department,
+                          @Param("fromDate") LocalDate fromDate,
+                          @Param("times") Collection<Time> times);
+}
@@ -0,0 +1,132 @@
+package appointment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Authoritative seat accounting for appointment slots. A seat is claimed with one conditional
+ * decrement on the slot's inventory row, so the database never lets a slot go below zero even
+ * when several instances book at once. Striped in-process locks keep threads of this instance
+ * from piling onto the same row and from racing to create a missing row.
+ */
+@Service
+@Transactional
+public class SlotInventoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlotInventoryService.class);
+
+    @Autowired
+    private SlotInventoryRepository slotInventoryRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private SlotScheduleRegistry slotScheduleRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final StripedLocks slotLocks = new StripedLocks(Runtime.getRuntime().availableProcessors() * 4);
+
+    private TransactionTemplate newTransaction;
+
+    record SlotKey(Long institutionId, String department, LocalDate date, Time time) {
+    }
+
+    @PostConstruct
+    public void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Claims one seat in the slot. Joins the caller's transaction, so the seat is given back
+     * automatically if the booking that claimed it rolls back.
+     *
+     * @return false when the slot is already full
+     */
+    public boolean claimSeat(Long institutionId, String department, LocalDate date, Time time) {
+        SlotKey key = new SlotKey(institutionId, department, date, time);
+        ReentrantLock lock = slotLocks.lockFor(key);
+        lock.lock();
+        try {
+            if (slotInventoryRepository.claimSeat(institutionId, department, date, time) == 1) {
+                return true;
+            }
+            if (slotInventoryRepository.existsByInstitutionIdAndDepartmentAndDateAndTime(institutionId, department, date, time)) {
+                logger.warn("Slot {} is fully booked.", key);
+                return false;
+            }
+            int capacity = slotScheduleRegistry.scheduleFor(institutionId, department).capacityAt(time.toLocalTime());
+            if (capacity == 0) {
+                logger.warn("{} is not a bookable slot for department {} of institution {}.", time, department, institutionId);
+                return false;
+            }
+            createInventoryRow(key, capacity);
+            return slotInventoryRepository.claimSeat(institutionId, department, date, time) == 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void releaseSeat(Long institutionId, String department, LocalDate date, Time time) {
+        if (slotInventoryRepository.releaseSeat(institutionId, department, date, time) == 0) {
+            logger.debug("No seat to release for slot {} {} {} {}", institutionId, department, date, time);
+        }
+    }
+
+    /**
+     * Brings the inventory rows of upcoming dates in line with a department's new schedule.
+     * Remaining seats move by the capacity difference, so seats already taken stay taken.
+     */
+    public void applySchedule(Long institutionId, String department, SlotSchedule schedule) {
+        LocalDate today = LocalDate.now();
+        int updated = 0;
+        for (int i = 0; i < schedule.size(); i++) {
+            updated += slotInventoryRepository.updateCapacity(institutionId, department, today,
+                    Time.valueOf(schedule.time(i)), schedule.capacity(i));
+        }
+        updated += slotInventoryRepository.closeSlotsOutside(institutionId, department, today, schedule.times());
+        logger.info("Applied slot schedule [{}] to {} inventory rows of department {} in institution {}",
+                schedule, updated, department, institutionId);
+    }
+
+    public boolean claimSeat(Appointment appointment) {
+        return claimSeat(appointment.getInstitution().getId(), appointment.getDepartment(), appointment.getDate(), appointment.getTime());
+    }
+
+    public void releaseSeat(Appointment appointment) {
+        releaseSeat(appointment.getInstitution().getId(), appointment.getDepartment(), appointment.getDate(), appointment.getTime());
+    }
+
+    // Seeds a missing row from the bookings that already exist, in its own transaction so a
+    // duplicate insert from another instance does not poison the caller's booking transaction
+    private void createInventoryRow(SlotKey key, int capacity) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                long booked = appointmentRepository.countByInstitutionIdAndDepartmentAndDateAndTimeAndAppointmentstatusIn(
+                        key.institutionId(), key.department(), key.date(), key.time(), SlotOccupancyIndex.OCCUPYING_STATUSES);
+                int remaining = (int) Math.max(0, capacity - booked);
+                slotInventoryRepository.saveAndFlush(new SlotInventory(
+                        key.institutionId(), key.department(), key.date(), key.time(), capacity, remaining));
+            });
+            logger.info("Created slot inventory for {}", key);
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Slot inventory for {} was created concurrently", key);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package appointment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory count of booked appointments per slot, keyed by (institution, department, date).
+ * A key is loaded from the database the first time it is asked for and is then kept up to date
+ * by AppointmentService on every booking, cancellation and reschedule.
+ */
+@Component
+public class SlotOccupancyIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlotOccupancyIndex.class);
+
+    // Every status except "canceled" holds a seat in its slot
+    public static final List<AppointmentStatus> OCCUPYING_STATUSES = List.of(
+            AppointmentStatus.BOOKED, AppointmentStatus.RESCHEDULED, AppointmentStatus.CHECKED_IN, AppointmentStatus.ATTENDED);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private TenantDirectory tenantDirectory;
+
+    private final Map<SlotKey, Map<LocalTime, AtomicInteger>> occupancy = new ConcurrentHashMap<>();
+
+    // Bumped for every change to a key that is not loaded, so a load that overlapped it is not kept
+    private final Map<SlotKey, Long> changes = new ConcurrentHashMap<>();
+
+    private final AtomicLong clears = new AtomicLong();
+
+    record SlotKey(Long institutionId, String department, LocalDate date) {
+    }
+
+    /**
+     * Returns the booked count per slot time. Warm keys are answered from memory; a cold key
+     * validates the institution and rebuilds its counts with a single grouped query. The query runs
+     * outside the map; if a booking, release or eviction for the key lands while it runs, the result
+     * may have missed it and the key is loaded again.
+     */
+    public Map<LocalTime, AtomicInteger> bookedCounts(Long institutionId, String department, LocalDate date) {
+        SlotKey key = new SlotKey(institutionId, department, date);
+        Map<LocalTime, AtomicInteger> counts = occupancy.get(key);
+        if (counts == null) {
+            // Past dates can no longer be booked, so their entries are dead weight
+            LocalDate today = LocalDate.now();
+            occupancy.keySet().removeIf(existing -> existing.date().isBefore(today));
+            changes.keySet().removeIf(existing -> existing.date().isBefore(today));
+        }
+        while (counts == null) {
+            long cleared = clears.get();
+            long changed = changes.getOrDefault(key, 0L);
+            Map<LocalTime, AtomicInteger> loaded = load(key);
+            counts = occupancy.compute(key, (k, existing) -> {
+                if (existing != null || clears.get() != cleared || changes.getOrDefault(k, 0L) != changed) {
+                    return existing;
+                }
+                return loaded;
+            });
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public int bookedCount(Long institutionId, String department, LocalDate date, LocalTime time) {
+        AtomicInteger count = bookedCounts(institutionId, department, date).get(time);
+        return count == null ? 0 : count.get();
+    }
+
+    public void recordBooked(Appointment appointment) {
+        adjust(appointment, 1);
+    }
+
+    public void recordReleased(Appointment appointment) {
+        adjust(appointment, -1);
+    }
+
+    // Drops a key so the next read reloads it from the database
+    public void evict(Long institutionId, String department, LocalDate date) {
+        occupancy.compute(new SlotKey(institutionId, department, date), (key, counts) -> {
+            changes.merge(key, 1L, Long::sum);
+            return null;
+        });
+    }
+
+    public void evict(Appointment appointment) {
+        if (appointment.getInstitution() != null) {
+            evict(appointment.getInstitution().getId(), appointment.getDepartment(), appointment.getDate());
+        }
+    }
+
+    public void clear() {
+        clears.incrementAndGet();
+        occupancy.clear();
+    }
+
+    private void adjust(Appointment appointment, int delta) {
+        if (appointment.getInstitution() == null || appointment.getTime() == null) {
+            return;
+        }
+        SlotKey key = new SlotKey(appointment.getInstitution().getId(), appointment.getDepartment(), appointment.getDate());
+        // Keys that are not loaded yet pick the change up from the database; a load already running
+        // may not see it, so the change is counted and that load is discarded
+        occupancy.compute(key, (k, counts) -> {
+            if (counts == null) {
+                changes.merge(k, 1L, Long::sum);
+            } else {
+                counts.computeIfAbsent(appointment.getTime().toLocalTime(), t -> new AtomicInteger())
+                        .updateAndGet(current -> Math.max(0, current + delta));
+            }
+            return counts;
+        });
+    }
+
+    private Map<LocalTime, AtomicInteger> load(SlotKey key) {
+        if (!tenantDirectory.institutionExists(key.institutionId())) {
+            throw new IllegalArgumentException("Invalid institution ID");
+        }
+
+        // Loaded counts are kept until evicted, so they come from the primary, never a lagging replica
+        List<SlotCount> slotCounts = ReplicaRoutingDataSource.onPrimary(() -> appointmentRepository.countBookedSlots(
+                key.institutionId(), key.department(), key.date(), OCCUPYING_STATUSES));
+        Map<LocalTime, AtomicInteger> counts = new ConcurrentHashMap<>();
+        for (SlotCount slotCount : slotCounts) {
+            counts.put(slotCount.getTime().toLocalTime(), new AtomicInteger((int) slotCount.getBooked()));
+        }
+        logger.debug("Loaded slot occupancy for {}: {}", key, counts);
+        return counts;
+    }
+}
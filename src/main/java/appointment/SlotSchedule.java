@@ -0,0 +1,151 @@
+package appointment;
+
+import java.sql.Time;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compiled, immutable slot template for one department: the bookable times in order, a capacity
+ * per time, and a bitmask with one bit per slot index. Availability checks work on the mask
+ * instead of building lists of times.
+ */
+public final class SlotSchedule {
+
+    public static final int MAX_SLOTS = Long.SIZE;
+
+    private final LocalTime[] times;
+    private final List<Time> sqlTimes;
+    private final int[] capacities;
+    private final long allSlots;
+
+    private SlotSchedule(LocalTime[] times, int[] capacities) {
+        this.times = times;
+        this.capacities = capacities;
+        List<Time> converted = new ArrayList<>(times.length);
+        for (LocalTime time : times) {
+            converted.add(Time.valueOf(time));
+        }
+        this.sqlTimes = Collections.unmodifiableList(converted);
+        this.allSlots = times.length == MAX_SLOTS ? -1L : (1L << times.length) - 1;
+    }
+
+    /**
+     * Compiles a template such as {@code "09:00,10:00=3,14:00"}. Entries without an explicit
+     * {@code =capacity} use {@code defaultCapacity}.
+     */
+    public static SlotSchedule compile(String template, int defaultCapacity) {
+        if (template == null || template.isBlank()) {
+            throw new IllegalArgumentException("Slot template cannot be empty");
+        }
+        TreeMap<LocalTime, Integer> entries = new TreeMap<>();
+        for (String entry : template.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.indexOf('=');
+            try {
+                LocalTime time = LocalTime.parse(separator < 0 ? trimmed : trimmed.substring(0, separator).trim());
+                int capacity = separator < 0 ? defaultCapacity : Integer.parseInt(trimmed.substring(separator + 1).trim());
+                if (capacity < 0) {
+                    throw new IllegalArgumentException("Negative capacity in slot template entry: " + trimmed);
+                }
+                entries.put(time, capacity);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid slot template entry: " + trimmed);
+            }
+        }
+        if (entries.isEmpty() || entries.size() > MAX_SLOTS) {
+            throw new IllegalArgumentException("A slot template must define between 1 and " + MAX_SLOTS + " slots");
+        }
+
+        LocalTime[] times = entries.keySet().toArray(new LocalTime[0]);
+        int[] capacities = new int[times.length];
+        for (int i = 0; i < times.length; i++) {
+            capacities[i] = entries.get(times[i]);
+        }
+        return new SlotSchedule(times, capacities);
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    // Bitmask with every slot of the template set
+    public long allSlots() {
+        return allSlots;
+    }
+
+    public LocalTime time(int index) {
+        return times[index];
+    }
+
+    public int capacity(int index) {
+        return capacities[index];
+    }
+
+    // Slot index of the given time, or -1 when the time is not part of the template
+    public int indexOf(LocalTime time) {
+        int index = Arrays.binarySearch(times, time);
+        return index < 0 ? -1 : index;
+    }
+
+    // Capacity of the given time, or 0 when the time is not bookable
+    public int capacityAt(LocalTime time) {
+        int index = indexOf(time);
+        return index < 0 ? 0 : capacities[index];
+    }
+
+    // Bitmask of the slots whose booked count is still below their capacity
+    public long availableSlots(ToIntFunction<LocalTime> bookedCount) {
+        long available = 0;
+        for (int i = 0; i < times.length; i++) {
+            if (bookedCount.applyAsInt(times[i]) < capacities[i]) {
+                available |= 1L << i;
+            }
+        }
+        return available;
+    }
+
+    // Slot times in template order, shared and unmodifiable
+    public List<Time> times() {
+        return sqlTimes;
+    }
+
+    public List<Time> times(long mask) {
+        List<Time> selected = new ArrayList<>(Long.bitCount(mask));
+        for (long remaining = mask & allSlots; remaining != 0; remaining &= remaining - 1) {
+            selected.add(sqlTimes.get(Long.numberOfTrailingZeros(remaining)));
+        }
+        return selected;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SlotSchedule schedule
+                && Arrays.equals(times, schedule.times) && Arrays.equals(capacities, schedule.capacities);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(times) + Arrays.hashCode(capacities);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder template = new StringBuilder();
+        for (int i = 0; i < times.length; i++) {
+            if (i > 0) {
+                template.append(',');
+            }
+            template.append(times[i]).append('=').append(capacities[i]);
+        }
+        return template.toString();
+    }
+}
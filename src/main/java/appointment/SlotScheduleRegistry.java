@@ -0,0 +1,99 @@
+package appointment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the compiled slot schedule of every department. Schedules are compiled once from the
+ * department rows and swapped in as a whole on reload, so lookups never see a partial update.
+ */
+@Component
+public class SlotScheduleRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlotScheduleRegistry.class);
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Value("${appointment.slots.default-template:09:00,10:00,11:00,12:00,14:00,15:00,16:00}")
+    private String defaultTemplate;
+
+    @Value("${appointment.slots.default-capacity:5}")
+    private int defaultCapacity;
+
+    private volatile SlotSchedule defaultSchedule;
+
+    private volatile Map<ScheduleKey, SlotSchedule> schedules = Map.of();
+
+    record ScheduleKey(Long institutionId, String department) {
+    }
+
+    @PostConstruct
+    public void init() {
+        defaultSchedule = SlotSchedule.compile(defaultTemplate, defaultCapacity);
+        reload();
+    }
+
+    /**
+     * Recompiles every department's template and publishes the result in one step. Returns the
+     * departments whose schedule differs from the one this instance had before, so the caller can
+     * bring their slot inventory in line.
+     */
+    public Set<ScheduleKey> reload() {
+        List<Department> departments = departmentRepository.findAll();
+        Map<ScheduleKey, SlotSchedule> previous = schedules;
+        Map<ScheduleKey, SlotSchedule> compiled = new HashMap<>();
+        Set<ScheduleKey> changed = new HashSet<>();
+        for (Department department : departments) {
+            if (department.getInstitution() == null) {
+                continue;
+            }
+            ScheduleKey key = new ScheduleKey(department.getInstitution().getId(), department.getDepartmentname());
+            SlotSchedule schedule = compile(department);
+            if (schedule != defaultSchedule) {
+                compiled.put(key, schedule);
+            }
+            if (!schedule.equals(previous.getOrDefault(key, defaultSchedule))) {
+                changed.add(key);
+            }
+        }
+        schedules = Map.copyOf(compiled);
+        logger.info("Loaded slot schedules for {} of {} departments, {} changed", compiled.size(), departments.size(), changed.size());
+        return changed;
+    }
+
+    public SlotSchedule scheduleFor(Long institutionId, String department) {
+        return schedules.getOrDefault(new ScheduleKey(institutionId, department), defaultSchedule);
+    }
+
+    public SlotSchedule defaultSchedule() {
+        return defaultSchedule;
+    }
+
+    // Departments without their own template share the default schedule; a broken template falls back to it
+    private SlotSchedule compile(Department department) {
+        if (department.getSlotTemplate() == null && department.getSlotCapacity() == null) {
+            return defaultSchedule;
+        }
+        String template = department.getSlotTemplate() != null ? department.getSlotTemplate() : defaultTemplate;
+        int capacity = department.getSlotCapacity() != null ? department.getSlotCapacity() : defaultCapacity;
+        try {
+            return SlotSchedule.compile(template, capacity);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid slot template for department {} ({}): {}", department.getDepartment_id(),
+                    department.getDepartmentname(), e.getMessage());
+            return defaultSchedule;
+        }
+    }
+}
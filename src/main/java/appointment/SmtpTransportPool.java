@@ -0,0 +1,238 @@
+package appointment;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a few connected and authenticated SMTP transports open and sends many messages over each,
+ * so the TCP, STARTTLS and AUTH handshake is paid once per connection instead of once per message.
+ * A connection is retired after maxMessagesPerConnection messages or when it was idle for longer
+ * than idleTimeout. A message that fails on a pooled connection is retried once on a fresh one,
+ * since the server may have dropped an idle connection. Only depends on a mail Session and the
+ * server settings, so it can be pointed at any SMTP server, including an in-process sink.
+ */
+public class SmtpTransportPool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private static final String HEADER_MESSAGE_ID = "Message-ID";
+
+    private final Session session;
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final int maxMessagesPerConnection;
+    private final Duration idleTimeout;
+    private final Duration borrowTimeout;
+
+    // Permits for open connections, idle or in use
+    private final Semaphore connections;
+
+    // Most recently used first, so the ones at the end are the first to go idle
+    private final LinkedList<PooledTransport> idle = new LinkedList<>();
+
+    private volatile boolean closed;
+
+    private static final class PooledTransport {
+
+        private final Transport transport;
+        private int sent;
+        private long lastUsed = System.nanoTime();
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    public SmtpTransportPool(Session session, String protocol, String host, int port, String username, String password,
+                             int maxConnections, int maxMessagesPerConnection, Duration idleTimeout, Duration borrowTimeout) {
+        this.session = session;
+        this.protocol = protocol;
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.idleTimeout = idleTimeout;
+        this.borrowTimeout = borrowTimeout;
+        this.connections = new Semaphore(maxConnections);
+    }
+
+    public void send(MimeMessage message) throws MessagingException {
+        MessagingException failure = sendAll(List.of(message)).get(0);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Sends the messages in order over one pooled connection. The result has one entry per
+     * message: null when it was sent, otherwise why it was not. When no connection can be opened
+     * the remaining messages all fail with that error.
+     */
+    public List<MessagingException> sendAll(List<MimeMessage> messages) {
+        List<MessagingException> failures = new ArrayList<>(Collections.nCopies(messages.size(), null));
+        PooledTransport transport = null;
+        try {
+            for (int i = 0; i < messages.size(); i++) {
+                MimeMessage message = messages.get(i);
+                for (int attempt = 1; ; attempt++) {
+                    if (transport != null && transport.sent >= maxMessagesPerConnection) {
+                        discard(transport);
+                        transport = null;
+                    }
+                    if (transport == null) {
+                        try {
+                            transport = borrow();
+                        } catch (MessagingException e) {
+                            for (int j = i; j < messages.size(); j++) {
+                                failures.set(j, e);
+                            }
+                            return failures;
+                        }
+                    }
+                    try {
+                        sendOne(transport, message);
+                        break;
+                    } catch (SendFailedException e) {
+                        // Rejected recipients; the connection itself is fine
+                        failures.set(i, e);
+                        break;
+                    } catch (MessagingException e) {
+                        discard(transport);
+                        transport = null;
+                        if (attempt > 1) {
+                            failures.set(i, e);
+                            break;
+                        }
+                        logger.debug("Pooled SMTP connection failed ({}), retrying on a new one", e.getMessage());
+                    }
+                }
+            }
+            return failures;
+        } finally {
+            if (transport != null) {
+                release(transport);
+            }
+        }
+    }
+
+    // Closes connections that sat idle for longer than the idle timeout
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - idleTimeout.toNanos();
+        List<PooledTransport> expired = new ArrayList<>();
+        synchronized (idle) {
+            Iterator<PooledTransport> iterator = idle.descendingIterator();
+            while (iterator.hasNext()) {
+                PooledTransport transport = iterator.next();
+                if (transport.lastUsed - cutoff >= 0) {
+                    break;
+                }
+                iterator.remove();
+                expired.add(transport);
+            }
+        }
+        expired.forEach(this::discard);
+        if (!expired.isEmpty()) {
+            logger.debug("Closed {} idle SMTP connections", expired.size());
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        List<PooledTransport> remaining;
+        synchronized (idle) {
+            remaining = new ArrayList<>(idle);
+            idle.clear();
+        }
+        remaining.forEach(this::discard);
+    }
+
+    // Same header handling as JavaMailSenderImpl: keep a preset Message-ID across saveChanges
+    private void sendOne(PooledTransport pooled, MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) {
+            message.setSentDate(new Date());
+        }
+        String messageId = message.getMessageID();
+        message.saveChanges();
+        if (messageId != null) {
+            message.setHeader(HEADER_MESSAGE_ID, messageId);
+        }
+        pooled.transport.sendMessage(message, message.getAllRecipients());
+        pooled.sent++;
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        synchronized (idle) {
+            PooledTransport transport = idle.pollFirst();
+            if (transport != null) {
+                return transport;
+            }
+        }
+        try {
+            if (!connections.tryAcquire(borrowTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("No SMTP connection became available within " + borrowTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection");
+        }
+        // Another thread may have returned one while this one waited for the permit
+        synchronized (idle) {
+            PooledTransport transport = idle.pollFirst();
+            if (transport != null) {
+                connections.release();
+                return transport;
+            }
+        }
+        try {
+            Transport transport = session.getTransport(protocol);
+            transport.connect(host, port, username, password);
+            logger.debug("Opened SMTP connection to {}:{}", host, port);
+            return new PooledTransport(transport);
+        } catch (MessagingException | RuntimeException e) {
+            connections.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledTransport transport) {
+        if (closed || transport.sent >= maxMessagesPerConnection) {
+            discard(transport);
+            return;
+        }
+        transport.lastUsed = System.nanoTime();
+        synchronized (idle) {
+            idle.addFirst(transport);
+        }
+    }
+
+    private void discard(PooledTransport transport) {
+        try {
+            transport.transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Closing SMTP connection failed: {}", e.getMessage());
+        } finally {
+            connections.release();
+        }
+    }
+}
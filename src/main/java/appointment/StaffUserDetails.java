@@ -0,0 +1,55 @@
+package appointment;
+
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The staff member a request was authenticated as, with the user id and institution needed for
+ * per-tenant checks. The role name stored on the user becomes its only authority.
+ */
+public class StaffUserDetails extends User {
+
+    private final int userid;
+    private final UserRole role;
+    private final Long institutionId;
+
+    public StaffUserDetails(Users user) {
+        super(user.getEmail(), user.getPassword(), List.of(new SimpleGrantedAuthority("ROLE_" + roleName(user))));
+        this.userid = user.getUserid();
+        this.role = UserRole.valueOf(roleName(user));
+        this.institutionId = user.getInstitutionId();
+    }
+
+    static boolean hasKnownRole(Users user) {
+        return user.getRoleName() != null
+                && Arrays.stream(UserRole.values()).anyMatch(role -> role.name().equals(roleName(user)));
+    }
+
+    private static String roleName(Users user) {
+        return user.getRoleName().toUpperCase(Locale.ROOT);
+    }
+
+    public int getUserid() {
+        return userid;
+    }
+
+    public UserRole getRole() {
+        return role;
+    }
+
+    public Long getInstitutionId() {
+        return institutionId;
+    }
+
+    // Superadmins manage every institution, institution admins only their own
+    public boolean canManageInstitution(Long institutionId) {
+        if (role == UserRole.SUPERADMIN) {
+            return true;
+        }
+        return role == UserRole.INSTITUTION_ADMIN && institutionId != null && institutionId.equals(this.institutionId);
+    }
+}
@@ -0,0 +1,11 @@
+package appointment;
+
+// Query hint values shared by the streaming repository methods
+final class StreamingHints {
+
+    // MySQL Connector/J only streams rows one by one instead of buffering the whole result for this fetch size
+    static final String FETCH_SIZE = "-2147483648";
+
+    private StreamingHints() {
+    }
+}
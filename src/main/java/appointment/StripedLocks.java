@@ -0,0 +1,33 @@
+package appointment;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed array of locks picked by key hash, so unrelated keys rarely wait on each other
+ * without keeping a lock object per key.
+ */
+public class StripedLocks {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedLocks(int minimumStripes) {
+        int stripes = Integer.highestOneBit(Math.max(1, minimumStripes - 1)) << 1;
+        this.locks = new ReentrantLock[stripes];
+        this.mask = stripes - 1;
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock lockFor(Object key) {
+        int hash = key.hashCode();
+        // Spread the high bits so keys differing only there do not share a stripe
+        hash ^= (hash >>> 16);
+        return locks[hash & mask];
+    }
+
+    public int size() {
+        return locks.length;
+    }
+}
@@ -0,0 +1,122 @@
+package appointment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Immutable snapshot of institutions, their department names and the physiotherapist roster, used
+ * for the reference checks on the booking path. The snapshot is rebuilt after every write through
+ * InstitutionService, DepartmentService or UsersService and swapped in atomically; a periodic refresh
+ * and a database fallback on misses cover writes made by other instances.
+ */
+@Component
+public class TenantDirectory {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantDirectory.class);
+
+    @Autowired
+    private InstitutionRepository institutionRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Value("${app.tenant-directory.refresh-ms:300000}")
+    private long refreshMillis;
+
+    record Snapshot(Map<Long, Institution> institutions,
+                    Map<Long, Set<String>> departments,
+                    Map<Integer, Users> physiotherapists) {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), Map.of());
+    }
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+        jobCoordinator.schedule("tenant-directory.refresh", JobCoordinator.Mode.EVERY_NODE,
+                JobCoordinator.fixedDelay(Duration.ofMillis(refreshMillis), Duration.ofMillis(refreshMillis)), this::rebuild);
+    }
+
+    public synchronized void rebuild() {
+        List<Institution> institutions = institutionRepository.findAll();
+        List<Department> departments = departmentRepository.findAll();
+        List<Users> physiotherapists = usersRepository.findByRoleName(UserRole.PHYSIOTHERAPIST.name());
+
+        Map<Long, Institution> institutionsById = new HashMap<>();
+        for (Institution institution : institutions) {
+            institutionsById.put(institution.getId(), institution);
+        }
+        Map<Long, Set<String>> departmentNames = new HashMap<>();
+        for (Department department : departments) {
+            if (department.getInstitution() != null && department.getDepartmentname() != null) {
+                departmentNames.computeIfAbsent(department.getInstitution().getId(), id -> new HashSet<>())
+                        .add(department.getDepartmentname());
+            }
+        }
+        departmentNames.replaceAll((id, names) -> Set.copyOf(names));
+        Map<Integer, Users> physiotherapistsById = new HashMap<>();
+        for (Users user : physiotherapists) {
+            physiotherapistsById.put(user.getUserid(), user);
+        }
+
+        snapshot.set(new Snapshot(Map.copyOf(institutionsById), Map.copyOf(departmentNames), Map.copyOf(physiotherapistsById)));
+        logger.info("Tenant directory rebuilt: {} institutions, {} departments, {} physiotherapists",
+                institutionsById.size(), departments.size(), physiotherapistsById.size());
+    }
+
+    public Optional<Institution> institution(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Institution institution = snapshot.get().institutions().get(id);
+        if (institution == null && institutionRepository.existsById(id)) {
+            // Created elsewhere since the last rebuild
+            rebuild();
+            institution = snapshot.get().institutions().get(id);
+        }
+        return Optional.ofNullable(institution);
+    }
+
+    public boolean institutionExists(Long id) {
+        return institution(id).isPresent();
+    }
+
+    // Institutions without any configured department accept every department name, as before
+    public boolean offersDepartment(Long institutionId, String department) {
+        Set<String> departments = snapshot.get().departments().get(institutionId);
+        return departments == null || departments.isEmpty() || departments.contains(department);
+    }
+
+    // The user when it is a physiotherapist, otherwise empty
+    public Optional<Users> physiotherapist(int userId) {
+        Users user = snapshot.get().physiotherapists().get(userId);
+        if (user == null && usersRepository.findById(userId)
+                .filter(found -> UserRole.PHYSIOTHERAPIST.name().equals(found.getRoleName())).isPresent()) {
+            rebuild();
+            user = snapshot.get().physiotherapists().get(userId);
+        }
+        return Optional.ofNullable(user);
+    }
+}
@@ -0,0 +1,11 @@
+package appointment;
+
+// Read model for user endpoints: everything but the password hash and the appointment collection
+public record UserView(int userid,
+                       String username,
+                       String email,
+                       String roleName,
+                       Long institutionId,
+                       String institutionName,
+                       boolean defaultPassword) {
+}
@@ -1,24 +1,36 @@
 package appointment;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 
 import java.util.ArrayList;
 import java.util.List;
 
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_email", columnList = "email"),
+        @Index(name = "idx_users_username", columnList = "username"),
+        @Index(name = "idx_users_institution", columnList = "institution_id"),
+        @Index(name = "idx_users_role", columnList = "role_name")
+})
 public class Users {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int userid;
     private String username;
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
     private String roleName;
     private String email;
     private Long institutionId;
     private String institutionName;
     private boolean defaultPassword; // Add this field
+    // Physiotherapist opted into one digest email instead of one email per appointment change
+    private boolean digestEnabled;
 
     public boolean isDefaultPassword() {
 		return defaultPassword;
@@ -28,6 +40,14 @@ public class Users {
 		this.defaultPassword = defaultPassword;
 	}
 
+	public boolean isDigestEnabled() {
+		return digestEnabled;
+	}
+
+	public void setDigestEnabled(boolean digestEnabled) {
+		this.digestEnabled = digestEnabled;
+	}
+
 	public String getInstitutionName() {
         return institutionName;
     }
@@ -35,6 +55,7 @@ public class Users {
     public void setInstitutionName(String institutionName) {
         this.institutionName = institutionName;
     }
+    @JsonIgnore
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Appointment> appointments = new ArrayList<>();
 
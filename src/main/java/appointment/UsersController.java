@@ -7,7 +7,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -28,20 +30,39 @@ public class UsersController {
     @Autowired
     private AppointmentService appointmentService;
 
+    @Autowired
+    private NdjsonStreamer ndjsonStreamer;
+
     @ApiOperation(value = "View a list of users", response = List.class)
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping
-    public List<Users> getAllUsers() {
+    public List<UserView> getAllUsers() {
         return usersService.getAllUsers();
     }
 
+    @ApiOperation(value = "View a page of users; pass the returned cursor as 'after' for the next page")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/page")
+    public KeysetPage<UserView> getUsersPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size) {
+        return usersService.getUsersPage(after, size);
+    }
+
+    @ApiOperation(value = "Stream all users as newline-delimited JSON")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        return ndjsonStreamer.stream(usersService::streamUsers);
+    }
+
     @ApiOperation(value = "Get a user by Id")
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/{id}")
-    public ResponseEntity<Users> getUserById(
+    public ResponseEntity<UserView> getUserById(
             @ApiParam(value = "User id from which user object will retrieve", required = true)
             @PathVariable int id) {
-        Users user = usersService.getUserById(id);
+        UserView user = usersService.getUserViewById(id);
         if (user != null) {
             return ResponseEntity.ok(user);
         }
@@ -108,6 +129,28 @@ public class UsersController {
         }
     }
 
+    // Callers sign in through the staff filter chain in SecurityConfig; the service checks whose setting it is
+    @ApiOperation(value = "Switch a physiotherapist between one email per appointment change and a digest")
+    @PutMapping("/{id}/digest")
+    public ResponseEntity<Object> setDigestEnabled(
+            @ApiParam(value = "User Id of the physiotherapist", required = true)
+            @PathVariable int id,
+            @ApiParam(value = "Whether appointment notifications are collected into a digest", required = true)
+            @RequestParam boolean enabled,
+            @AuthenticationPrincipal StaffUserDetails caller) {
+        Users updatedUser;
+        try {
+            updatedUser = usersService.setDigestEnabled(id, enabled, caller);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ResponseModel(e.getMessage(), "NOT_A_PHYSIOTHERAPIST"));
+        }
+        if (updatedUser == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ResponseModel("User not found", "USER_NOT_FOUND"));
+        }
+        return ResponseEntity.ok(updatedUser);
+    }
+
     @ApiOperation(value = "Delete a user")
     @PreAuthorize("hasAnyRole('SUPERADMIN', 'INSTITUTION_ADMIN')")
     @DeleteMapping("/{id}")
@@ -121,17 +164,17 @@ public class UsersController {
     @ApiOperation(value = "View a list of appointments", response = List.class)
     @PreAuthorize("hasAnyRole('INSTITUTION_ADMIN', 'PHYSIOTHERAPIST')")
     @GetMapping("/appointments")
-    public List<Appointment> getAllAppointments() {
+    public List<AppointmentView> getAllAppointments() {
         return appointmentService.getAllAppointments();
     }
 
     @ApiOperation(value = "Get an appointment by Id")
     @PreAuthorize("hasAnyRole('INSTITUTION_ADMIN', 'PHYSIOTHERAPIST')")
     @GetMapping("/appointments/{id}")
-    public ResponseEntity<Appointment> getAppointmentById(
+    public ResponseEntity<AppointmentView> getAppointmentById(
             @ApiParam(value = "Appointment id from which appointment object will retrieve", required = true)
             @PathVariable int id) {
-        Appointment appointment = appointmentService.getAppointmentById(id);
+        AppointmentView appointment = appointmentService.getAppointmentViewById(id);
         if (appointment != null) {
             return ResponseEntity.ok(appointment);
         }
@@ -197,9 +240,9 @@ public class UsersController {
 
 
     @GetMapping("/institution/{institutionId}/users")
-    public ResponseEntity<List<Users>> getUsersByInstitutionId(
+    public ResponseEntity<List<UserView>> getUsersByInstitutionId(
             @PathVariable Long institutionId) {
-        List<Users> users = usersService.getUsersByInstitutionId(institutionId);
+        List<UserView> users = usersService.getUsersByInstitutionId(institutionId);
         if (!users.isEmpty()) {
             return ResponseEntity.ok(users);
         } else {
@@ -1,9 +1,16 @@
 package appointment;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +18,27 @@ public interface UsersRepository extends JpaRepository<Users, Integer> {
     Optional<Users> findByEmail(String email);
     Optional<Users> findByUsername(String username);
     List<Users> findByInstitutionId(Long institutionId);
+    List<Users> findByRoleName(String roleName);
+    List<Users> findByDigestEnabledTrue();
+
+    // Read models for the GET endpoints, without the password hash or the appointments collection
+    String VIEW_SELECT = "SELECT new appointment.UserView(u.userid, u.username, u.email, u.roleName, " +
+            "u.institutionId, u.institutionName, u.defaultPassword) FROM Users u ";
+
+    @Query(VIEW_SELECT + "ORDER BY u.userid")
+    List<UserView> findAllViews();
+
+    @Query(VIEW_SELECT + "WHERE u.userid = :id")
+    Optional<UserView> findViewById(@Param("id") int id);
+
+    @Query(VIEW_SELECT + "WHERE u.institutionId = :institutionId ORDER BY u.userid")
+    List<UserView> findViewsByInstitutionId(@Param("institutionId") Long institutionId);
+
+    // Keyset pagination and streaming for the list endpoint
+    @Query(VIEW_SELECT + "WHERE u.userid > :afterId ORDER BY u.userid")
+    List<UserView> findViewsAfter(@Param("afterId") int afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingHints.FETCH_SIZE))
+    @Query(VIEW_SELECT + "ORDER BY u.userid")
+    Stream<UserView> streamAllViews();
 }
@@ -5,6 +5,7 @@ import org.apache.http.HttpStatus;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -12,6 +13,7 @@ import jakarta.transaction.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 
@@ -31,6 +33,15 @@ public class UsersService {
     @Autowired
     private InstitutionRepository institutionRepository;
 
+    @Autowired
+    private KeysetPagination keysetPagination;
+
+    @Autowired
+    private TenantDirectory tenantDirectory;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
     public UsersService(InstitutionRepository institutionRepository) {
         this.institutionRepository = institutionRepository;
     }
@@ -69,15 +80,35 @@ public class UsersService {
     }
 
 
-    public List<Users> getAllUsers() {
-        return usersRepository.findAll();
+    @ReadOnlyTransactional
+    public List<UserView> getAllUsers() {
+        return usersRepository.findAllViews();
+    }
+
+    @ReadOnlyTransactional
+    public KeysetPage<UserView> getUsersPage(String after, Integer size) {
+        int pageSize = keysetPagination.pageSize(size);
+        List<UserView> rows = usersRepository.findViewsAfter((int) KeysetPagination.decodeId(after), keysetPagination.probe(pageSize));
+        return keysetPagination.page(rows, pageSize, row -> KeysetPagination.encode(row.userid()));
+    }
+
+    // Must be consumed inside a transaction; see NdjsonStreamer
+    public Stream<UserView> streamUsers() {
+        return usersRepository.streamAllViews();
+    }
+
+    @ReadOnlyTransactional
+    public UserView getUserViewById(int id) {
+        return usersRepository.findViewById(id).orElse(null);
     }
 
+    @ReadOnlyTransactional
     public Users getUserById(int id) {
         Optional<Users> optionalUser = usersRepository.findById(id);
         return optionalUser.orElse(null);
     }
 
+    @ReadOnlyTransactional
     public Users getUserByEmail(String email) {
         return usersRepository.findByEmail(email).orElse(null);
     }
@@ -88,7 +119,10 @@ public class UsersService {
 
         // Check the role of the user being created and handle accordingly
         if (user.getRole() == UserRole.INSTITUTION_ADMIN || user.getRole() == UserRole.PHYSIOTHERAPIST) {
-            return usersRepository.save(user);
+            Users savedUser = usersRepository.save(user);
+            tenantDirectory.rebuild();
+            invalidationBus.publish(CacheInvalidation.of(CacheInvalidation.Type.USER));
+            return savedUser;
         } else {
             throw new IllegalArgumentException("Invalid role specified for user creation.");
         }
@@ -105,6 +139,8 @@ public class UsersService {
             //existingUser.setPassword(passwordEncoder.encode(newUser.getPassword()));
             existingUser.setEmail(newUser.getEmail());  // Update email field
             Users updatedUser = usersRepository.save(existingUser);
+            tenantDirectory.rebuild();
+            invalidationBus.publish(CacheInvalidation.of(CacheInvalidation.Type.USER));
             logger.info("User with ID: {} updated successfully", id);
             return updatedUser;
         } else {
@@ -113,6 +149,29 @@ public class UsersService {
         }
     }
 
+    // Physiotherapists change their own setting, institution admins those of their institution's physiotherapists
+    public Users setDigestEnabled(int id, boolean enabled, StaffUserDetails caller) {
+        Optional<Users> optionalUser = usersRepository.findById(id);
+        if (optionalUser.isEmpty()) {
+            logger.warn("User with ID: {} not found", id);
+            return null;
+        }
+        Users user = optionalUser.get();
+        if (caller == null || (caller.getUserid() != id && !caller.canManageInstitution(user.getInstitutionId()))) {
+            throw new AccessDeniedException("Not allowed to change the digest setting of user " + id);
+        }
+        if (!UserRole.PHYSIOTHERAPIST.name().equals(user.getRoleName())) {
+            throw new IllegalArgumentException("Only physiotherapists receive appointment digests");
+        }
+        user.setDigestEnabled(enabled);
+        Users updatedUser = usersRepository.save(user);
+        // Bookings read physiotherapists from the directory, so it must see the new setting
+        tenantDirectory.rebuild();
+        invalidationBus.publish(CacheInvalidation.of(CacheInvalidation.Type.USER));
+        logger.info("Digest emails {} for user with ID: {}", enabled ? "enabled" : "disabled", id);
+        return updatedUser;
+    }
+
     public Users createSuperAdmin(String email, String password, String username) {
         Users superAdmin = new Users();
         superAdmin.setEmail(email);
@@ -127,6 +186,8 @@ public class UsersService {
         Optional<Users> optionalUser = usersRepository.findById(id);
         if (optionalUser.isPresent()) {
             usersRepository.deleteById(id);
+            tenantDirectory.rebuild();
+            invalidationBus.publish(CacheInvalidation.of(CacheInvalidation.Type.USER));
             logger.info("Successfully deleted user with ID: {}", id);
         } else {
             logger.error("User with ID: {} not found.", id);
@@ -160,8 +221,9 @@ public class UsersService {
         return institutionOptional.map(Institution::getName).orElse(null);
     }
 
-    public List<Users> getUsersByInstitutionId(Long institutionId) {
-        List<Users> users = usersRepository.findByInstitutionId(institutionId);
+    @ReadOnlyTransactional
+    public List<UserView> getUsersByInstitutionId(Long institutionId) {
+        List<UserView> users = usersRepository.findViewsByInstitutionId(institutionId);
         logger.info("Retrieved {} users for institution with ID {}", users.size(), institutionId);
         return users;
     }
@@ -198,6 +260,8 @@ public class UsersService {
         try {
             // Save the physiotherapist
             Users savedUser = usersRepository.save(user);
+            tenantDirectory.rebuild();
+            invalidationBus.publish(CacheInvalidation.of(CacheInvalidation.Type.USER));
             logger.info("Successfully created physiotherapist '{}' associated with institution '{}'", savedUser.getUsername(), institutionName);
             return savedUser;
         } catch (Exception e) {
@@ -1,9 +1,12 @@
 package appointment;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.sql.Date;
 
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
 @Table(name = "visitors", uniqueConstraints = {
         @UniqueConstraint(columnNames = "email"),
@@ -32,6 +35,7 @@ public class Visitor {
     private String visit_status;
 
     @NotBlank(message = "Password cannot be empty")
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
 
     private boolean isDefaultPassword;
@@ -17,7 +17,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -35,12 +37,28 @@ public class VisitorControllerClass {
     // private Validator validator; // Injecting the Validator bean
     @Autowired
     private VisitorService visitorService;
+    @Autowired
+    private NdjsonStreamer ndjsonStreamer;
     @ApiOperation(value = "View a list of visitors", response = List.class)
     @GetMapping
-    public List<Visitor> getAllVisitors() {
+    public List<VisitorSummary> getAllVisitors() {
         return visitorService.getAllVisitors();
     }
 
+    @ApiOperation(value = "View a page of visitors; pass the returned cursor as 'after' for the next page")
+    @GetMapping("/page")
+    public KeysetPage<VisitorSummary> getVisitorsPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size) {
+        return visitorService.getVisitorsPage(after, size);
+    }
+
+    @ApiOperation(value = "Stream all visitors as newline-delimited JSON")
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVisitors() {
+        return ndjsonStreamer.stream(visitorService::streamVisitors);
+    }
+
     @ApiOperation(value = "Get a visitor by Id")
     @GetMapping("/{id}")
     public Visitor getVisitorById(
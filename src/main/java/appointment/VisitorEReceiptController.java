@@ -3,6 +3,7 @@ package appointment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -13,11 +14,26 @@ public class VisitorEReceiptController {
     @Autowired
     private VisitorEReceiptService visitorEReceiptService;
 
+    @Autowired
+    private NdjsonStreamer ndjsonStreamer;
+
     @GetMapping
     public List<VisitorEReceipt> getAllVisitorEReceipts() {
         return visitorEReceiptService.getAllVisitorEReceipts();
     }
 
+    @GetMapping("/page")
+    public KeysetPage<VisitorEReceipt> getVisitorEReceiptsPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size) {
+        return visitorEReceiptService.getVisitorEReceiptsPage(after, size);
+    }
+
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVisitorEReceipts() {
+        return ndjsonStreamer.stream(visitorEReceiptService::streamVisitorEReceipts);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<VisitorEReceipt> getVisitorEReceiptById(@PathVariable int id) {
         VisitorEReceipt visitorEReceipt = visitorEReceiptService.getVisitorEReceiptById(id);
@@ -1,8 +1,24 @@
 package appointment;
 
+import java.util.List;
+import java.util.stream.Stream;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface VisitorEReceiptRepository extends JpaRepository<VisitorEReceipt, Integer> {
+
+    // Keyset pagination and streaming for the list endpoint
+    @Query("SELECT v FROM VisitorEReceipt v WHERE v.receipt_id > :afterId ORDER BY v.receipt_id")
+    List<VisitorEReceipt> findPageAfter(@Param("afterId") int afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingHints.FETCH_SIZE))
+    @Query("SELECT v FROM VisitorEReceipt v ORDER BY v.receipt_id")
+    Stream<VisitorEReceipt> streamAll();
 }
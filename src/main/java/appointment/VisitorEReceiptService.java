@@ -5,6 +5,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class VisitorEReceiptService {
@@ -12,10 +13,24 @@ public class VisitorEReceiptService {
     @Autowired
     private VisitorEReceiptRepository visitorEReceiptRepository;
 
+    @Autowired
+    private KeysetPagination keysetPagination;
+
     public List<VisitorEReceipt> getAllVisitorEReceipts() {
         return visitorEReceiptRepository.findAll();
     }
 
+    public KeysetPage<VisitorEReceipt> getVisitorEReceiptsPage(String after, Integer size) {
+        int pageSize = keysetPagination.pageSize(size);
+        List<VisitorEReceipt> rows = visitorEReceiptRepository.findPageAfter((int) KeysetPagination.decodeId(after), keysetPagination.probe(pageSize));
+        return keysetPagination.page(rows, pageSize, row -> KeysetPagination.encode(row.getReceipt_id()));
+    }
+
+    // Must be consumed inside a transaction; see NdjsonStreamer
+    public Stream<VisitorEReceipt> streamVisitorEReceipts() {
+        return visitorEReceiptRepository.streamAll();
+    }
+
     public VisitorEReceipt getVisitorEReceiptById(int id) {
         Optional<VisitorEReceipt> optionalVisitorEReceipt = visitorEReceiptRepository.findById(id);
         return optionalVisitorEReceipt.orElse(null);
@@ -3,6 +3,7 @@ package appointment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -13,11 +14,26 @@ public class VisitorNotificationsController {
     @Autowired
     private VisitorNotificationsService visitorNotificationsService;
 
+    @Autowired
+    private NdjsonStreamer ndjsonStreamer;
+
     @GetMapping
     public List<VisitorNotifications> getAllVisitorNotifications() {
         return visitorNotificationsService.getAllVisitorNotifications();
     }
 
+    @GetMapping("/page")
+    public KeysetPage<VisitorNotifications> getVisitorNotificationsPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size) {
+        return visitorNotificationsService.getVisitorNotificationsPage(after, size);
+    }
+
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVisitorNotifications() {
+        return ndjsonStreamer.stream(visitorNotificationsService::streamVisitorNotifications);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<VisitorNotifications> getVisitorNotificationById(@PathVariable int id) {
         VisitorNotifications visitorNotification = visitorNotificationsService.getVisitorNotificationById(id);
@@ -1,8 +1,25 @@
 package appointment;
 
+import java.util.List;
+import java.util.stream.Stream;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface VisitorNotificationsRepository extends JpaRepository<VisitorNotifications, Integer> {
+
+    // Keyset pagination and streaming for the list endpoint. The visitor is fetched in the same
+    // select: a per-row lookup is an N+1 for pages and fails while a streaming result set is open
+    @Query("SELECT v FROM VisitorNotifications v LEFT JOIN FETCH v.visitor WHERE v.notification_id > :afterId ORDER BY v.notification_id")
+    List<VisitorNotifications> findPageAfter(@Param("afterId") int afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingHints.FETCH_SIZE))
+    @Query("SELECT v FROM VisitorNotifications v LEFT JOIN FETCH v.visitor ORDER BY v.notification_id")
+    Stream<VisitorNotifications> streamAll();
 }
@@ -2,6 +2,7 @@ package appointment;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -20,6 +21,9 @@ public class VisitorNotificationsService {
     @Autowired
     private VisitorNotificationsRepository visitorNotificationsRepository;
 
+    @Autowired
+    private KeysetPagination keysetPagination;
+
     @Autowired
     private VisitorRepository visitorRepository;
 
@@ -32,6 +36,17 @@ public class VisitorNotificationsService {
         return visitorNotificationsRepository.findAll();
     }
 
+    public KeysetPage<VisitorNotifications> getVisitorNotificationsPage(String after, Integer size) {
+        int pageSize = keysetPagination.pageSize(size);
+        List<VisitorNotifications> rows = visitorNotificationsRepository.findPageAfter((int) KeysetPagination.decodeId(after), keysetPagination.probe(pageSize));
+        return keysetPagination.page(rows, pageSize, row -> KeysetPagination.encode(row.getNotification_id()));
+    }
+
+    // Must be consumed inside a transaction; see NdjsonStreamer
+    public Stream<VisitorNotifications> streamVisitorNotifications() {
+        return visitorNotificationsRepository.streamAll();
+    }
+
     public VisitorNotifications getVisitorNotificationById(int id) {
         Optional<VisitorNotifications> optionalVisitorNotification = visitorNotificationsRepository.findById(id);
         return optionalVisitorNotification.orElse(null);
@@ -1,10 +1,17 @@
 package appointment;
 
+import java.util.List;
+import java.util.stream.Stream;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.QueryHints;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -16,4 +23,32 @@ public interface VisitorRepository extends JpaRepository<Visitor, Integer> {
     @Query("UPDATE Visitor v SET v.password = :password WHERE v.email = :email")
     void updatePasswordByEmail(String email, String password);
     Optional<Visitor> findById(Integer id);
+
+    // Summary rows for the list endpoints; the full profile is only served by id
+    String SUMMARY_SELECT = "SELECT new appointment.VisitorSummary(v.visitorid, v.visitorname, v.company, v.email, " +
+            "v.phone_number, v.gender, v.department, v.visit_status) FROM Visitor v ";
+
+    @Query(SUMMARY_SELECT + "ORDER BY v.visitorid")
+    List<VisitorSummary> findAllSummaries();
+
+    // Keyset pagination and streaming for the list endpoint
+    @Query(SUMMARY_SELECT + "WHERE v.visitorid > :afterId ORDER BY v.visitorid")
+    List<VisitorSummary> findSummariesAfter(@Param("afterId") int afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingHints.FETCH_SIZE))
+    @Query(SUMMARY_SELECT + "ORDER BY v.visitorid")
+    Stream<VisitorSummary> streamAllSummaries();
+
+    // Campaign recipients in visitor id order, one chunk at a time so a campaign can resume after the last id
+    String RECIPIENT_SELECT = "SELECT new appointment.CampaignRecipient(v.visitorid, v.email) FROM Visitor v " +
+            "WHERE v.visitorid > :afterId AND v.email IS NOT NULL AND v.email <> '' ";
+
+    @Query(RECIPIENT_SELECT + "ORDER BY v.visitorid")
+    List<CampaignRecipient> findCampaignRecipientsAfter(@Param("afterId") int afterId, Pageable pageable);
+
+    @Query(RECIPIENT_SELECT + "AND EXISTS (SELECT 1 FROM Appointment a WHERE a.visitor = v AND a.institution.id = :institutionId) " +
+            "ORDER BY v.visitorid")
+    List<CampaignRecipient> findInstitutionCampaignRecipientsAfter(@Param("afterId") int afterId,
+                                                                   @Param("institutionId") Long institutionId,
+                                                                   Pageable pageable);
 }
@@ -4,9 +4,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.RandomStringUtils;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +16,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import jakarta.transaction.Transactional;
+
 @Service
 public class VisitorService {
 
@@ -23,6 +27,9 @@ public class VisitorService {
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
 
+    @Autowired
+    private KeysetPagination keysetPagination;
+
     public VisitorService(VisitorRepository visitorRepository,
                           PasswordEncoder passwordEncoder,
                           EmailService emailService) {
@@ -31,17 +38,32 @@ public class VisitorService {
         this.emailService = emailService;
     }
 
-    public List<Visitor> getAllVisitors() {
+    @ReadOnlyTransactional
+    public List<VisitorSummary> getAllVisitors() {
         logger.info("Fetching all visitors");
-        return visitorRepository.findAll();
+        return visitorRepository.findAllSummaries();
+    }
+
+    @ReadOnlyTransactional
+    public KeysetPage<VisitorSummary> getVisitorsPage(String after, Integer size) {
+        int pageSize = keysetPagination.pageSize(size);
+        List<VisitorSummary> rows = visitorRepository.findSummariesAfter((int) KeysetPagination.decodeId(after), keysetPagination.probe(pageSize));
+        return keysetPagination.page(rows, pageSize, row -> KeysetPagination.encode(row.visitorid()));
+    }
+
+    // Must be consumed inside a transaction; see NdjsonStreamer
+    public Stream<VisitorSummary> streamVisitors() {
+        return visitorRepository.streamAllSummaries();
     }
 
+    @ReadOnlyTransactional
     public Visitor getVisitorById(int id) {
         logger.info("Fetching visitor by ID: {}", id);
         Optional<Visitor> optionalVisitor = visitorRepository.findById(id);
         return optionalVisitor.orElse(null);
     }
 
+    @Transactional
     public Visitor createVisitor(Visitor visitor) {
         logger.info("Creating new visitor with email: {}", visitor.getEmail());
 
@@ -86,6 +108,7 @@ public class VisitorService {
         }
     }
 
+    @Transactional
     public void initiatePasswordReset(String email) {
         logger.info("Initiating password reset for visitor with email: {}", email);
         Optional<Visitor> optionalVisitor = visitorRepository.findByEmail(email);
@@ -131,6 +154,7 @@ public class VisitorService {
         logger.info("Deleting visitor with ID: {}", id);
         visitorRepository.deleteById(id);
     }
+    @ReadOnlyTransactional
     public Map<String, String> getWelcomeDetails(int visitorId) {
         Optional<Visitor> optionalVisitor = visitorRepository.findById(visitorId);
 
@@ -0,0 +1,12 @@
+package appointment;
+
+// Read model for visitor listings: contact details only, no credentials or health data
+public record VisitorSummary(int visitorid,
+                             String visitorname,
+                             String company,
+                             String email,
+                             String phone_number,
+                             String gender,
+                             String department,
+                             String visit_status) {
+}
@@ -0,0 +1,15 @@
+-- One lease row per exclusive scheduled job; the node in owner runs it until lease_until
+create table job_lease (
+    job_name varchar(100) not null,
+    owner varchar(255),
+    lease_until datetime(6) not null,
+    primary key (job_name)
+) engine=InnoDB;
+
+-- Heartbeats of the running instances, used to split per-institution work across live nodes
+create table cluster_node (
+    node_id varchar(255) not null,
+    heartbeat_at datetime(6) not null,
+    primary key (node_id),
+    index idx_cluster_node_heartbeat (heartbeat_at)
+) engine=InnoDB;
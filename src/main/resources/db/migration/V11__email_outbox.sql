@@ -0,0 +1,21 @@
+-- Emails written with the change they report and sent by EmailOutboxWorker after commit
+create table email_outbox (
+    id bigint not null,
+    recipient varchar(255) not null,
+    subject varchar(255) not null,
+    template_name varchar(100) not null,
+    variables text not null,
+    status enum('PENDING','SENT','DEAD') not null,
+    attempts integer not null,
+    next_attempt_at datetime(6) not null,
+    locked_by varchar(255),
+    locked_until datetime(6),
+    last_error varchar(1000),
+    created_at datetime(6) not null,
+    sent_at datetime(6),
+    primary key (id),
+    index idx_email_outbox_due (status, next_attempt_at),
+    index idx_email_outbox_sent (status, sent_at)
+) engine=InnoDB;
+
+insert into id_generator (sequence_name, next_val) values ('email_outbox', 0);
@@ -0,0 +1,18 @@
+-- Physiotherapists can opt into one digest email instead of an email per appointment change
+alter table users add column digest_enabled bit not null default 0;
+
+create table physio_digest_event (
+    id bigint not null,
+    user_id integer not null,
+    type enum('ASSIGNED','RESCHEDULED','CANCELED','REMINDER') not null,
+    appointment_id integer not null,
+    visitor_name varchar(255),
+    date date not null,
+    time time(6) not null,
+    meeting_link varchar(255),
+    created_at datetime(6) not null,
+    primary key (id),
+    index idx_physio_digest_event_user (user_id, id)
+) engine=InnoDB;
+
+insert into id_generator (sequence_name, next_val) values ('physio_digest_event', 0);
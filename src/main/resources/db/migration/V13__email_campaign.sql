@@ -0,0 +1,19 @@
+-- Bulk emails to visitors, sent in visitor id order with a checkpoint so a restart resumes them
+create table email_campaign (
+    id bigint not null,
+    institution_id bigint,
+    subject varchar(255) not null,
+    message text not null,
+    status enum('RUNNING','COMPLETED','CANCELED') not null,
+    last_visitor_id integer not null,
+    sent_count integer not null,
+    failed_count integer not null,
+    locked_by varchar(255),
+    locked_until datetime(6),
+    created_at datetime(6) not null,
+    completed_at datetime(6),
+    primary key (id),
+    index idx_email_campaign_status (status, id)
+) engine=InnoDB;
+
+insert into id_generator (sequence_name, next_val) values ('email_campaign', 0);
@@ -0,0 +1,18 @@
+-- Appointment statuses used to be free-form strings, and AppointmentStatus refuses values it does
+-- not know. Common spellings are mapped to the stored values; anything else is not counted as an
+-- occupied seat by the slot inventory, so it is marked canceled instead of failing to load.
+update appointment set appointmentstatus = 'rescheduled'
+where lower(trim(appointmentstatus)) = 'reschedule';
+
+update appointment set appointmentstatus = 'checked_in'
+where lower(trim(appointmentstatus)) in ('checked-in', 'checked in', 'checkedin', 'check_in');
+
+update appointment set appointmentstatus = 'attended'
+where lower(trim(appointmentstatus)) in ('completed', 'checked_out', 'checked-out', 'checkedout');
+
+update appointment set appointmentstatus = 'canceled'
+where lower(trim(appointmentstatus)) in ('cancelled', 'cancel');
+
+update appointment set appointmentstatus = 'canceled', cancellation_date = coalesce(cancellation_date, now(6))
+where appointmentstatus is not null
+  and lower(trim(appointmentstatus)) not in ('booked', 'rescheduled', 'checked_in', 'attended', 'canceled');
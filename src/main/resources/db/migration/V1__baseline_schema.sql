@@ -0,0 +1,158 @@
+-- Baseline: the schema as Hibernate generated it under ddl-auto=update, before Flyway took over.
+-- Databases that already have it are baselined at this version and skip this script.
+
+create table institution (
+    id bigint not null auto_increment,
+    address varchar(255),
+    contact_number varchar(255),
+    created_date datetime(6),
+    email varchar(255),
+    logo_filename varchar(255),
+    name varchar(255),
+    registration_number varchar(255),
+    updated_date datetime(6),
+    website varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table department (
+    department_id integer not null auto_increment,
+    departmentname varchar(255),
+    institution_id bigint,
+    primary key (department_id),
+    constraint fk_department_institution foreign key (institution_id) references institution (id)
+) engine=InnoDB;
+
+create table roles (
+    role_id integer not null auto_increment,
+    role_name varchar(255),
+    primary key (role_id)
+) engine=InnoDB;
+
+create table users (
+    userid integer not null auto_increment,
+    default_password bit not null,
+    email varchar(255),
+    institution_id bigint,
+    institution_name varchar(255),
+    password varchar(255),
+    role_name varchar(255),
+    username varchar(255),
+    primary key (userid)
+) engine=InnoDB;
+
+create table visitors (
+    visitorid integer not null auto_increment,
+    activity_level varchar(255),
+    blood_pressure float(53),
+    bmi float(53),
+    body_fat float(53),
+    checkin_time date,
+    checkout_time date,
+    company varchar(255),
+    daily_steps integer,
+    department varchar(255),
+    dob date,
+    email varchar(255),
+    experience_level varchar(255),
+    fitness_goal varchar(255),
+    gender varchar(255),
+    height float(53),
+    injuries varchar(255),
+    is_default_password bit not null,
+    medical_conditions varchar(255),
+    medications varchar(255),
+    password varchar(255),
+    phone_number varchar(255),
+    target_weight float(53),
+    visit_status varchar(255),
+    visitorname varchar(255),
+    weight float(53),
+    workout_streak integer not null,
+    workout_time varchar(255),
+    workout_type varchar(255),
+    primary key (visitorid),
+    constraint uk_visitors_email unique (email),
+    constraint uk_visitors_phone_number unique (phone_number)
+) engine=InnoDB;
+
+create table appointment (
+    appointmentid integer not null auto_increment,
+    appointmentstatus varchar(255),
+    cancellation_date datetime(6),
+    check_in_time datetime(6),
+    check_out_time datetime(6),
+    date date,
+    department varchar(255),
+    meeting_type enum ('VIRTUAL','PHYSICAL') not null,
+    passcode varchar(255),
+    time time(6),
+    video_meeting_link varchar(255),
+    institutionid bigint,
+    userid integer not null,
+    visitorid integer,
+    primary key (appointmentid),
+    constraint uk_appointment_passcode unique (passcode),
+    constraint fk_appointment_institution foreign key (institutionid) references institution (id),
+    constraint fk_appointment_user foreign key (userid) references users (userid),
+    constraint fk_appointment_visitor foreign key (visitorid) references visitors (visitorid)
+) engine=InnoDB;
+
+create table exercise (
+    id bigint not null auto_increment,
+    experience_level varchar(255) not null,
+    file_path varchar(255) not null,
+    gender varchar(255) not null,
+    name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table system_configuration (
+    configuration_id integer not null auto_increment,
+    badge_template varchar(255),
+    integrations varchar(255),
+    notification_preferences varchar(255),
+    primary key (configuration_id)
+) engine=InnoDB;
+
+create table visitor_checkins (
+    checkin_id integer not null auto_increment,
+    checkin_time datetime(6),
+    checkout_time datetime(6),
+    visitor_id integer,
+    primary key (checkin_id),
+    constraint fk_visitor_checkins_visitor foreign key (visitor_id) references visitors (visitorid)
+) engine=InnoDB;
+
+create table visitor_e_receipt (
+    receipt_id integer not null auto_increment,
+    report_data varchar(255),
+    report_type varchar(255),
+    timestamp datetime(6),
+    primary key (receipt_id)
+) engine=InnoDB;
+
+create table visitor_notifications (
+    notification_id integer not null auto_increment,
+    notification_content varchar(255),
+    notification_type varchar(255),
+    timestamp datetime(6),
+    visitor_id integer,
+    primary key (notification_id),
+    constraint fk_visitor_notifications_visitor foreign key (visitor_id) references visitors (visitorid)
+) engine=InnoDB;
+
+create table workout_plans (
+    id bigint not null auto_increment,
+    date date,
+    day_number integer not null,
+    visitor_id integer not null,
+    primary key (id),
+    constraint fk_workout_plans_visitor foreign key (visitor_id) references visitors (visitorid)
+) engine=InnoDB;
+
+create table workout_plan_exercises (
+    workout_plan_id bigint not null,
+    exercises varchar(255),
+    constraint fk_workout_plan_exercises_plan foreign key (workout_plan_id) references workout_plans (id)
+) engine=InnoDB;
@@ -0,0 +1,12 @@
+-- Seats per slot; bookings claim one by decrementing remaining_capacity, so a full slot cannot be oversold.
+create table slot_inventory (
+    id bigint not null auto_increment,
+    capacity integer not null,
+    date date not null,
+    department varchar(255) not null,
+    institution_id bigint not null,
+    remaining_capacity integer not null,
+    time time(6) not null,
+    primary key (id),
+    constraint uk_slot_inventory_slot unique (institution_id, department, date, time)
+) engine=InnoDB;
@@ -0,0 +1,4 @@
+-- Per-department slot schedule; null keeps the default template and capacity.
+alter table department
+    add column slot_capacity integer,
+    add column slot_template varchar(255);
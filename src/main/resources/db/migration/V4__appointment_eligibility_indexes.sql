@@ -0,0 +1,3 @@
+-- Booking eligibility checks: open appointments per visitor and department, and same-slot bookings.
+create index idx_appointment_visitor_status on appointment (visitorid, appointmentstatus, department);
+create index idx_appointment_visitor_slot on appointment (visitorid, date, time);
@@ -0,0 +1,2 @@
+-- Set when the reminder of a virtual appointment went out, so it is sent once across restarts.
+alter table appointment add column reminder_sent_at datetime(6);
@@ -0,0 +1,2 @@
+-- Optimistic lock version for status transitions.
+alter table appointment add column version bigint default 0 not null;
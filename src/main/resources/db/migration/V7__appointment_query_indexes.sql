@@ -0,0 +1,24 @@
+-- Composite indexes for the repository finders. Each one leads with the equality columns
+-- of its query and ends with the columns the query reads, so the lookup stays in the index.
+-- (visitorid, appointmentstatus) is already served by idx_appointment_visitor_status.
+
+-- Slot counts, calendar and institution/date/status listings
+create index idx_appointment_institution_day on appointment (institutionid, date, department, appointmentstatus, time);
+
+-- Physiotherapist schedules
+create index idx_appointment_user_date on appointment (userid, date, time);
+
+-- findAppointmentsBetween and today's active passcodes
+create index idx_appointment_date_time on appointment (date, time);
+
+-- findByDepartmentAndDate and countByDepartmentAndDateAndTime
+create index idx_appointment_department_date on appointment (department, date, time);
+
+-- Reminder scheduler reload
+create index idx_appointment_pending_reminders on appointment (meeting_type, reminder_sent_at, date);
+
+-- Login, staff listings and the tenant directory
+create index idx_users_email on users (email);
+create index idx_users_username on users (username);
+create index idx_users_institution on users (institution_id);
+create index idx_users_role on users (role_name);
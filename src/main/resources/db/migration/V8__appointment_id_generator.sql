@@ -0,0 +1,13 @@
+-- Block allocator for appointment ids (Hibernate table generator, pooled-lo optimizer).
+-- next_val holds the next id to hand out, so it starts one past the highest existing id.
+create table id_generator (
+    sequence_name varchar(255) not null,
+    next_val bigint,
+    primary key (sequence_name)
+) engine=InnoDB;
+
+insert into id_generator (sequence_name, next_val)
+select 'appointment', coalesce(max(appointmentid), 0) + 1 from appointment;
+
+-- Ids come from id_generator only; with auto_increment MySQL would replace an id of 0 with its own
+alter table appointment modify appointmentid integer not null;
@@ -0,0 +1,8 @@
+-- Outbox of cache invalidations for app.invalidation.transport=jdbc; instances poll it by id
+create table cache_invalidation (
+    id bigint not null auto_increment,
+    message varchar(1024) not null,
+    created_at datetime(6) not null,
+    primary key (id),
+    index idx_cache_invalidation_created (created_at)
+) engine=InnoDB;
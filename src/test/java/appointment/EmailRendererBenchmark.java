@@ -0,0 +1,138 @@
+package appointment;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.spring6.templateresolver.SpringResourceTemplateResolver;
+import org.thymeleaf.templatemode.TemplateMode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and serializing one campaign email with EmailRenderer against the per-message
+ * path it replaced, which attached both inline images from classpath resources to every message.
+ * Both use a caching template resolver, as the application always has.
+ * Not picked up by surefire; run it in its own JVM, which JMH needs to fork from:
+ * {@code mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=-cp %classpath appointment.EmailRendererBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailRendererBenchmark {
+
+    private static final String TEMPLATE = "campaignEmailTemplate";
+
+    private static final Map<String, Object> VARIABLES = Map.of(
+            "subject", "Clinic hours over the holidays",
+            "message", "Our clinic is closed on the 25th and 26th. Book your next session online.",
+            "institutionName", "WinsFit Physiotherapy");
+
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+    private final JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+
+    private EmailRenderer cachedRenderer;
+
+    private SpringTemplateEngine templateEngine;
+
+    @Setup
+    public void setUp() {
+        cachedRenderer = new EmailRenderer();
+        templateEngine = templateEngine();
+        ReflectionTestUtils.setField(cachedRenderer, "templateEngine", templateEngine);
+        ReflectionTestUtils.setField(cachedRenderer, "resourceLoader", resourceLoader);
+        ReflectionTestUtils.setField(cachedRenderer, "mailSender", mailSender);
+        cachedRenderer.init();
+    }
+
+    @Benchmark
+    public long cachedMessage() throws MessagingException, IOException {
+        String body = cachedRenderer.render(TEMPLATE, VARIABLES);
+        return serialize(cachedRenderer.createMessage("visitor@example.com", "Holidays", body));
+    }
+
+    @Benchmark
+    public long perMessageResources() throws MessagingException, IOException {
+        Context context = new Context();
+        context.setVariables(VARIABLES);
+        String body = templateEngine.process(TEMPLATE, context);
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setTo("visitor@example.com");
+        helper.setSubject("Holidays");
+        helper.setText(body, true);
+        Resource logo = resourceLoader.getResource("classpath:static/Images/WinsFit Logo.png");
+        helper.addInline("winsFitLogo", logo);
+        Resource robot = resourceLoader.getResource("classpath:static/Images/winsFit Robot.png");
+        helper.addInline("winsFitRobot", robot);
+        return serialize(message);
+    }
+
+    // Serializing is what the transport does, and where the inline images get encoded
+    private static long serialize(MimeMessage message) throws MessagingException, IOException {
+        message.saveChanges();
+        CountingOutputStream out = new CountingOutputStream();
+        message.writeTo(out);
+        return out.count;
+    }
+
+    // Same resolver settings as ThymeleafConfig
+    private static SpringTemplateEngine templateEngine() {
+        SpringResourceTemplateResolver templateResolver = new SpringResourceTemplateResolver();
+        templateResolver.setApplicationContext(new GenericApplicationContext());
+        templateResolver.setPrefix("classpath:/templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.addTemplateResolver(templateResolver);
+        return templateEngine;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EmailRendererBenchmark.class.getSimpleName()).build()).run();
+    }
+}
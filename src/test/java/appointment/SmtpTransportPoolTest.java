@@ -0,0 +1,140 @@
+package appointment;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Provider;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.URLName;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SmtpTransportPoolTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private static final AtomicInteger connects = new AtomicInteger();
+
+    private Session session;
+
+    private SmtpTransportPool pool;
+
+    // Counts the connections the pool opens
+    public static class CountingTransport extends SMTPTransport {
+
+        public CountingTransport(Session session, URLName urlname) {
+            super(session, urlname);
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password) throws MessagingException {
+            boolean connected = super.protocolConnect(host, port, user, password);
+            connects.incrementAndGet();
+            return connected;
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws MessagingException {
+        connects.set(0);
+        session = Session.getInstance(new Properties());
+        session.setProvider(new Provider(Provider.Type.TRANSPORT, "smtp", CountingTransport.class.getName(), "test", null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void reusesOneConnectionForConsecutiveSends() throws MessagingException {
+        pool = pool(10);
+
+        assertSent(pool.sendAll(messages(3)));
+        pool.send(message("visitor@example.com"));
+
+        assertEquals(1, connects.get());
+        assertEquals(4, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void retiresConnectionAfterMaxMessages() throws MessagingException {
+        pool = pool(2);
+
+        assertSent(pool.sendAll(messages(5)));
+
+        assertEquals(3, connects.get());
+        assertEquals(5, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void retriesOnNewConnectionWhenIdleOneWasDropped() throws MessagingException {
+        pool = pool(10);
+        pool.send(message("visitor@example.com"));
+
+        // Restarting the server drops the connection sitting idle in the pool
+        greenMail.reset();
+        pool.send(message("visitor@example.com"));
+
+        assertEquals(2, connects.get());
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void failsOnlyTheRejectedMessage() throws MessagingException {
+        pool = pool(10);
+        List<MimeMessage> messages = new ArrayList<>(messages(3));
+        messages.set(1, new MimeMessage(session));
+
+        List<MessagingException> failures = pool.sendAll(messages);
+
+        assertNull(failures.get(0));
+        assertInstanceOf(SendFailedException.class, failures.get(1));
+        assertNull(failures.get(2));
+        assertEquals(1, connects.get());
+        assertEquals(2, greenMail.getReceivedMessages().length);
+    }
+
+    private SmtpTransportPool pool(int maxMessagesPerConnection) {
+        return new SmtpTransportPool(session, "smtp", "localhost", ServerSetupTest.SMTP.getPort(), null, null,
+                2, maxMessagesPerConnection, Duration.ofMinutes(1), Duration.ofSeconds(5));
+    }
+
+    private List<MimeMessage> messages(int count) throws MessagingException {
+        List<MimeMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(message("visitor" + i + "@example.com"));
+        }
+        return messages;
+    }
+
+    private MimeMessage message(String to) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("noreply@winsfit.example"));
+        message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress(to));
+        message.setSubject("Test");
+        message.setText("Hello");
+        return message;
+    }
+
+    private static void assertSent(List<MessagingException> failures) {
+        failures.forEach(failure -> assertNull(failure, () -> failure.getMessage()));
+    }
+}
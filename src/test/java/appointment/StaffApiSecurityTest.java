@@ -0,0 +1,226 @@
+package appointment;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest
+class StaffApiSecurityTest {
+
+    @Configuration
+    @Import({SecurityConfig.class, GlobalExceptionHandler.class, EmailCampaignController.class, EmailCampaignService.class,
+            UsersController.class, UsersService.class})
+    static class Config {
+    }
+
+    private static final String PASSWORD = "Secret#123";
+
+    private static final String GLOBAL_CAMPAIGN = "{\"subject\":\"Holidays\",\"message\":\"Closed on the 25th\"}";
+
+    private static final String INSTITUTION_CAMPAIGN = "{\"subject\":\"Holidays\",\"message\":\"Closed on the 25th\",\"institutionId\":1}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @MockBean
+    private UsersRepository usersRepository;
+
+    @MockBean
+    private EmailCampaignRepository emailCampaignRepository;
+
+    @MockBean
+    private VisitorRepository visitorRepository;
+
+    @MockBean
+    private EmailService emailService;
+
+    @MockBean
+    private EmailRenderer emailRenderer;
+
+    @MockBean
+    private TenantDirectory tenantDirectory;
+
+    @MockBean
+    private ShardMap shardMap;
+
+    @MockBean
+    private JobCoordinator jobCoordinator;
+
+    @MockBean
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private AppointmentService appointmentService;
+
+    @MockBean
+    private NdjsonStreamer ndjsonStreamer;
+
+    @MockBean
+    private InstitutionRepository institutionRepository;
+
+    @MockBean
+    private KeysetPagination keysetPagination;
+
+    @MockBean
+    private InvalidationBus invalidationBus;
+
+    @BeforeEach
+    void setUp() {
+        staff("super@winsfit.example", UserRole.SUPERADMIN, null);
+        staff("admin@clinic-one.example", UserRole.INSTITUTION_ADMIN, 1L);
+        staff("admin@clinic-two.example", UserRole.INSTITUTION_ADMIN, 2L);
+        Users physiotherapist = staff("physio@clinic-one.example", UserRole.PHYSIOTHERAPIST, 1L);
+        physiotherapist.setUserid(10);
+        when(usersRepository.findById(10)).thenReturn(Optional.of(physiotherapist));
+        Users colleague = staff("colleague@clinic-one.example", UserRole.PHYSIOTHERAPIST, 1L);
+        colleague.setUserid(11);
+        when(usersRepository.findById(11)).thenReturn(Optional.of(colleague));
+        when(usersRepository.save(any(Users.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(tenantDirectory.institution(anyLong())).thenReturn(Optional.of(new Institution()));
+        when(emailCampaignRepository.save(any(EmailCampaign.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void rejectsCampaignWithoutCredentials() throws Exception {
+        mockMvc.perform(json(post("/api/campaigns"), GLOBAL_CAMPAIGN))
+                .andExpect(status().isUnauthorized());
+        verify(emailCampaignRepository, never()).save(any());
+    }
+
+    @Test
+    void rejectsCampaignFromPhysiotherapist() throws Exception {
+        mockMvc.perform(json(post("/api/campaigns"), INSTITUTION_CAMPAIGN).with(signedInAs("physio@clinic-one.example")))
+                .andExpect(status().isForbidden());
+        verify(emailCampaignRepository, never()).save(any());
+    }
+
+    @Test
+    void rejectsGlobalCampaignFromInstitutionAdmin() throws Exception {
+        mockMvc.perform(json(post("/api/campaigns"), GLOBAL_CAMPAIGN).with(signedInAs("admin@clinic-one.example")))
+                .andExpect(status().isForbidden());
+        verify(emailCampaignRepository, never()).save(any());
+    }
+
+    @Test
+    void rejectsCampaignForAnotherInstitution() throws Exception {
+        mockMvc.perform(json(post("/api/campaigns"), INSTITUTION_CAMPAIGN).with(signedInAs("admin@clinic-two.example")))
+                .andExpect(status().isForbidden());
+        verify(emailCampaignRepository, never()).save(any());
+    }
+
+    @Test
+    void acceptsCampaignForOwnInstitution() throws Exception {
+        mockMvc.perform(json(post("/api/campaigns"), INSTITUTION_CAMPAIGN).with(signedInAs("admin@clinic-one.example")))
+                .andExpect(status().isAccepted());
+    }
+
+    @Test
+    void acceptsGlobalCampaignFromSuperadmin() throws Exception {
+        mockMvc.perform(json(post("/api/campaigns"), GLOBAL_CAMPAIGN).with(signedInAs("super@winsfit.example")))
+                .andExpect(status().isAccepted());
+    }
+
+    @Test
+    void rejectsWrongPassword() throws Exception {
+        mockMvc.perform(json(post("/api/campaigns"), GLOBAL_CAMPAIGN).with(signedInAs("super@winsfit.example", "wrong")))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void hidesAndKeepsRunningAnotherInstitutionsCampaign() throws Exception {
+        EmailCampaign campaign = new EmailCampaign();
+        campaign.setInstitutionId(1L);
+        when(emailCampaignRepository.findById(7L)).thenReturn(Optional.of(campaign));
+
+        mockMvc.perform(get("/api/campaigns/7").with(signedInAs("admin@clinic-two.example")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(put("/api/campaigns/7/cancel").with(signedInAs("admin@clinic-two.example")))
+                .andExpect(status().isForbidden());
+        verify(emailCampaignRepository, never()).finish(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void rejectsDigestChangeWithoutCredentials() throws Exception {
+        mockMvc.perform(put("/api/users/10/digest").param("enabled", "true"))
+                .andExpect(status().isUnauthorized());
+        verify(usersRepository, never()).save(any());
+    }
+
+    @Test
+    void rejectsDigestChangeOfAnotherPhysiotherapist() throws Exception {
+        mockMvc.perform(put("/api/users/11/digest").param("enabled", "true").with(signedInAs("physio@clinic-one.example")))
+                .andExpect(status().isForbidden());
+        verify(usersRepository, never()).save(any());
+    }
+
+    @Test
+    void rejectsDigestChangeFromAnotherInstitutionsAdmin() throws Exception {
+        mockMvc.perform(put("/api/users/10/digest").param("enabled", "true").with(signedInAs("admin@clinic-two.example")))
+                .andExpect(status().isForbidden());
+        verify(usersRepository, never()).save(any());
+    }
+
+    @Test
+    void acceptsOwnDigestChange() throws Exception {
+        mockMvc.perform(put("/api/users/10/digest").param("enabled", "true").with(signedInAs("physio@clinic-one.example")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void acceptsDigestChangeFromOwnInstitutionsAdmin() throws Exception {
+        mockMvc.perform(put("/api/users/11/digest").param("enabled", "true").with(signedInAs("admin@clinic-one.example")))
+                .andExpect(status().isOk());
+    }
+
+    private Users staff(String email, UserRole role, Long institutionId) {
+        Users user = new Users(email, role);
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        user.setInstitutionId(institutionId);
+        when(usersRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        return user;
+    }
+
+    private static RequestPostProcessor signedInAs(String email) {
+        return signedInAs(email, PASSWORD);
+    }
+
+    private static RequestPostProcessor signedInAs(String email, String password) {
+        String credentials = Base64.getEncoder().encodeToString((email + ":" + password).getBytes(StandardCharsets.UTF_8));
+        return request -> {
+            request.addHeader(HttpHeaders.AUTHORIZATION, "Basic " + credentials);
+            return request;
+        };
+    }
+
+    private static MockHttpServletRequestBuilder json(MockHttpServletRequestBuilder request, String body) {
+        return request.contentType(MediaType.APPLICATION_JSON).content(body);
+    }
+}